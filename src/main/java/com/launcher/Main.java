@@ -1,5 +1,10 @@
 package com.launcher;
 
+import com.launcher.services.CacheGcService;
+import com.launcher.services.InstanceTrashService;
+import com.launcher.services.JavaRuntimeRegistry;
+import com.launcher.services.MicrosoftAuthService;
+import com.launcher.services.SettingsService;
 import com.launcher.ui.CustomTitleBar;
 import com.launcher.ui.DashboardView;
 import com.launcher.ui.ImportView;
@@ -64,6 +69,21 @@ public class Main extends Application {
         primaryStage.setTitle("Antigravity Launcher");
         primaryStage.setScene(scene);
         primaryStage.show();
+
+        // Renews the cached Microsoft session ahead of expiry so launches never wait on login
+        MicrosoftAuthService.getInstance().startBackgroundRefresh();
+        // Probe installed JVMs off the FX thread; launches then pick one from the cached map
+        JavaRuntimeRegistry.getInstance().scanAsync();
+        // Finishes instance deletions an earlier session left in the trash
+        InstanceTrashService.getInstance().resumePending();
+        // Drops unreachable libraries, assets and runtimes once the caches outgrow the budget
+        CacheGcService.getInstance().collectIfOverBudget();
+    }
+
+    @Override
+    public void stop() {
+        // Persist any debounced settings changes before the JVM goes away
+        SettingsService.getInstance().flush();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,422 @@
+package com.launcher.services;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.launcher.util.FileLinker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Asset indexes in a compact binary form. Each <id>.json is converted once into <id>.bin (packed
+// 20-byte hashes, sizes and names in primitive arrays). All indexes share one object table in
+// assets/objects.db, so an object verified for one version is verified for every version, and
+// checking an index lists each of the 256 prefix directories once instead of stat-ing every object.
+public class AssetIndexService {
+
+    private static final int INDEX_MAGIC = 0x41474149; // "AGAI"
+    private static final int TABLE_MAGIC = 0x4147414f; // "AGAO"
+    private static final int FORMAT = 1;
+    private static final int HASH_BYTES = 20;
+
+    public static final class AssetIndex {
+        public final String id;
+        public final boolean virtual;
+        public final boolean mapToResources;
+        public final String[] names;
+        final byte[] hashes;
+        public final long[] sizes;
+        // Position of each object in the shared table
+        final int[] slots;
+
+        AssetIndex(String id, boolean virtual, boolean mapToResources, String[] names, byte[] hashes, long[] sizes,
+                int[] slots) {
+            this.id = id;
+            this.virtual = virtual;
+            this.mapToResources = mapToResources;
+            this.names = names;
+            this.hashes = hashes;
+            this.sizes = sizes;
+            this.slots = slots;
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        public String hash(int i) {
+            return hex(hashes, i * HASH_BYTES);
+        }
+
+        public String prefix(int i) {
+            return hex(hashes, i * HASH_BYTES, 1);
+        }
+    }
+
+    private static AssetIndexService instance;
+    private final File tableFile;
+    // Shared table: packed hashes with an open-addressing lookup over them
+    private byte[] tableHashes = new byte[1024 * HASH_BYTES];
+    private int tableCount;
+    private int[] lookup = new int[2048];
+    private final BitSet verified = new BitSet();
+    private boolean dirty;
+
+    private AssetIndexService(File assetsDir) {
+        this.tableFile = new File(assetsDir, "objects.db");
+        Arrays.fill(lookup, -1);
+        loadTable();
+    }
+
+    public static synchronized AssetIndexService getInstance() {
+        if (instance == null) {
+            instance = new AssetIndexService(new File(com.launcher.util.Constants.GAME_DIR, "assets"));
+        }
+        return instance;
+    }
+
+    // Binary form of jsonFile, converting (again) if the JSON is newer than the .bin
+    public synchronized AssetIndex load(File jsonFile) throws IOException {
+        String id = jsonFile.getName().replaceFirst("\\.json$", "");
+        File binFile = new File(jsonFile.getParentFile(), id + ".bin");
+        AssetIndex index = readBinary(binFile, id, jsonFile);
+        if (index == null) {
+            index = convert(jsonFile, id);
+            writeBinary(binFile, index, jsonFile);
+            LogService.info("Converted asset index " + id + " (" + index.size() + " objects)");
+        }
+        return index;
+    }
+
+    // Indices of objects that must be downloaded. Present objects with the right size are marked
+    // verified; verified objects only need to show up in their prefix directory's listing.
+    public synchronized int[] missing(AssetIndex index, File objectsDir) {
+        List<Set<String>> listings = listPrefixes(index, objectsDir);
+        int[] missing = new int[index.size()];
+        int count = 0;
+        for (int i = 0; i < index.size(); i++) {
+            String hash = index.hash(i);
+            Set<String> listing = listings.get(index.hashes[i * HASH_BYTES] & 0xff);
+            int slot = index.slots[i];
+            if (!listing.contains(hash)) {
+                if (verified.get(slot)) {
+                    verified.clear(slot);
+                    dirty = true;
+                }
+                missing[count++] = i;
+            } else if (!verified.get(slot)) {
+                File file = new File(new File(objectsDir, index.prefix(i)), hash);
+                if (file.length() == index.sizes[i]) {
+                    verified.set(slot);
+                    dirty = true;
+                } else {
+                    missing[count++] = i;
+                }
+            }
+        }
+        return Arrays.copyOf(missing, count);
+    }
+
+    public synchronized void markVerified(AssetIndex index, int i) {
+        if (!verified.get(index.slots[i])) {
+            verified.set(index.slots[i]);
+            dirty = true;
+        }
+    }
+
+    // Lays the index out by name under targetDir (assets/virtual/<id>, or resources/ for
+    // map_to_resources indexes) from the hash store. Entries already in place with the right size
+    // are left alone, so after the first build only new or damaged entries are touched.
+    public void layout(AssetIndex index, File objectsDir, File targetDir) throws IOException {
+        long start = System.currentTimeMillis();
+        FileLinker linker = new FileLinker();
+        int[] counts = new int[FileLinker.Method.values().length];
+        int unchanged = 0;
+        int placed = 0;
+        Path root = targetDir.toPath().toAbsolutePath().normalize();
+        for (int i = 0; i < index.size(); i++) {
+            Path path = root.resolve(index.names[i]).normalize();
+            // Names come from a downloaded file; never let one escape the layout directory
+            if (!path.startsWith(root) || path.equals(root)) {
+                LogService.warn("Skipping asset with unsafe name: " + index.names[i]);
+                continue;
+            }
+            File target = path.toFile();
+            if (target.length() == index.sizes[i]) {
+                unchanged++;
+                continue;
+            }
+            File source = new File(new File(objectsDir, index.prefix(i)), index.hash(i));
+            if (!source.isFile())
+                continue;
+            counts[linker.link(source, target).ordinal()]++;
+            placed++;
+        }
+        if (placed > 0) {
+            LogService.info(String.format(
+                    "Asset layout %s: %d unchanged, %d hard-linked, %d reflinked, %d copied in %d ms",
+                    targetDir.getName(), unchanged, counts[FileLinker.Method.HARD_LINK.ordinal()],
+                    counts[FileLinker.Method.REFLINK.ordinal()], counts[FileLinker.Method.COPY.ordinal()],
+                    System.currentTimeMillis() - start));
+        }
+    }
+
+    // Persists the shared table and bitmap if anything changed
+    public synchronized void flush() {
+        if (!dirty)
+            return;
+        try {
+            tableFile.getParentFile().mkdirs();
+            File tmp = new File(tableFile.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(TABLE_MAGIC);
+                out.writeInt(FORMAT);
+                out.writeInt(tableCount);
+                out.write(tableHashes, 0, tableCount * HASH_BYTES);
+                byte[] bits = verified.toByteArray();
+                out.writeInt(bits.length);
+                out.write(bits);
+            }
+            Files.move(tmp.toPath(), tableFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            LogService.warn("Could not save asset object table: " + e.getMessage());
+        }
+    }
+
+    private List<Set<String>> listPrefixes(AssetIndex index, File objectsDir) {
+        List<Set<String>> listings = new ArrayList<>(256);
+        boolean[] needed = new boolean[256];
+        for (int i = 0; i < index.size(); i++) {
+            needed[index.hashes[i * HASH_BYTES] & 0xff] = true;
+        }
+        for (int p = 0; p < 256; p++) {
+            String[] names = needed[p] ? new File(objectsDir, String.format("%02x", p)).list() : null;
+            listings.add(names != null ? new HashSet<>(Arrays.asList(names)) : Set.of());
+        }
+        return listings;
+    }
+
+    private AssetIndex convert(File jsonFile, String id) throws IOException {
+        List<String> names = new ArrayList<>();
+        byte[] hashes = new byte[4096 * HASH_BYTES];
+        long[] sizes = new long[4096];
+        boolean virtual = false;
+        boolean mapToResources = false;
+        try (Reader reader = Files.newBufferedReader(jsonFile.toPath(), StandardCharsets.UTF_8);
+                JsonReader in = new JsonReader(reader)) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (key.equals("objects")) {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        int n = names.size();
+                        if (n == sizes.length) {
+                            sizes = Arrays.copyOf(sizes, n * 2);
+                            hashes = Arrays.copyOf(hashes, n * 2 * HASH_BYTES);
+                        }
+                        names.add(in.nextName());
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            String field = in.nextName();
+                            if (field.equals("hash")) {
+                                unhex(in.nextString(), hashes, n * HASH_BYTES);
+                            } else if (field.equals("size")) {
+                                sizes[n] = in.nextLong();
+                            } else {
+                                in.skipValue();
+                            }
+                        }
+                        in.endObject();
+                    }
+                    in.endObject();
+                } else if (key.equals("virtual") && in.peek() == JsonToken.BOOLEAN) {
+                    virtual = in.nextBoolean();
+                } else if (key.equals("map_to_resources") && in.peek() == JsonToken.BOOLEAN) {
+                    mapToResources = in.nextBoolean();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed asset index " + jsonFile + ": " + e.getMessage(), e);
+        }
+        int n = names.size();
+        byte[] packed = Arrays.copyOf(hashes, n * HASH_BYTES);
+        return new AssetIndex(id, virtual, mapToResources, names.toArray(new String[0]), packed,
+                Arrays.copyOf(sizes, n), slots(packed, n));
+    }
+
+    // Layout: magic, format, json size, json mtime, flags, count, hashes, sizes, names
+    private void writeBinary(File binFile, AssetIndex index, File jsonFile) {
+        File tmp = new File(binFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(FORMAT);
+                out.writeLong(jsonFile.length());
+                out.writeLong(jsonFile.lastModified());
+                out.writeByte((index.virtual ? 1 : 0) | (index.mapToResources ? 2 : 0));
+                out.writeInt(index.size());
+                out.write(index.hashes);
+                for (long size : index.sizes) {
+                    out.writeLong(size);
+                }
+                for (String name : index.names) {
+                    out.writeUTF(name);
+                }
+            }
+            Files.move(tmp.toPath(), binFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The in-memory index is still good; the JSON is simply converted again next time
+            tmp.delete();
+            LogService.warn("Could not write binary asset index " + binFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private AssetIndex readBinary(File binFile, String id, File jsonFile) {
+        if (!binFile.isFile())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binFile)))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != FORMAT || in.readLong() != jsonFile.length()
+                    || in.readLong() != jsonFile.lastModified())
+                return null;
+            int flags = in.readByte();
+            int n = in.readInt();
+            byte[] hashes = new byte[n * HASH_BYTES];
+            in.readFully(hashes);
+            long[] sizes = new long[n];
+            for (int i = 0; i < n; i++) {
+                sizes[i] = in.readLong();
+            }
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) {
+                names[i] = in.readUTF();
+            }
+            return new AssetIndex(id, (flags & 1) != 0, (flags & 2) != 0, names, hashes, sizes, slots(hashes, n));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void loadTable() {
+        if (!tableFile.isFile())
+            return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(tableFile)))) {
+            if (in.readInt() != TABLE_MAGIC || in.readInt() != FORMAT)
+                return;
+            int count = in.readInt();
+            byte[] hashes = new byte[count * HASH_BYTES];
+            in.readFully(hashes);
+            byte[] bits = new byte[in.readInt()];
+            in.readFully(bits);
+            for (int i = 0; i < count; i++) {
+                slot(hashes, i * HASH_BYTES);
+            }
+            verified.or(BitSet.valueOf(bits));
+        } catch (IOException | RuntimeException e) {
+            // Start over; objects get re-verified by size on the next check
+            LogService.warn("Asset object table unreadable, rebuilding: " + e.getMessage());
+            tableCount = 0;
+            tableHashes = new byte[1024 * HASH_BYTES];
+            lookup = new int[2048];
+            Arrays.fill(lookup, -1);
+            verified.clear();
+        }
+    }
+
+    private int[] slots(byte[] hashes, int n) {
+        int[] slots = new int[n];
+        for (int i = 0; i < n; i++) {
+            slots[i] = slot(hashes, i * HASH_BYTES);
+        }
+        return slots;
+    }
+
+    // Slot of a hash in the shared table, appending it if new
+    private int slot(byte[] hashes, int off) {
+        int mask = lookup.length - 1;
+        int h = ((hashes[off] & 0xff) << 24 | (hashes[off + 1] & 0xff) << 16 | (hashes[off + 2] & 0xff) << 8
+                | (hashes[off + 3] & 0xff)) & mask;
+        while (lookup[h] >= 0) {
+            int existing = lookup[h];
+            if (Arrays.equals(tableHashes, existing * HASH_BYTES, existing * HASH_BYTES + HASH_BYTES, hashes, off,
+                    off + HASH_BYTES))
+                return existing;
+            h = (h + 1) & mask;
+        }
+        int slot = tableCount++;
+        if (tableCount * HASH_BYTES > tableHashes.length) {
+            tableHashes = Arrays.copyOf(tableHashes, tableHashes.length * 2);
+        }
+        System.arraycopy(hashes, off, tableHashes, slot * HASH_BYTES, HASH_BYTES);
+        lookup[h] = slot;
+        dirty = true;
+        // Keep the lookup at most half full
+        if (tableCount * 2 > lookup.length) {
+            rehash();
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        lookup = new int[lookup.length * 2];
+        Arrays.fill(lookup, -1);
+        int mask = lookup.length - 1;
+        for (int slot = 0; slot < tableCount; slot++) {
+            int off = slot * HASH_BYTES;
+            int h = ((tableHashes[off] & 0xff) << 24 | (tableHashes[off + 1] & 0xff) << 16
+                    | (tableHashes[off + 2] & 0xff) << 8 | (tableHashes[off + 3] & 0xff)) & mask;
+            while (lookup[h] >= 0) {
+                h = (h + 1) & mask;
+            }
+            lookup[h] = slot;
+        }
+    }
+
+    private static void unhex(String hex, byte[] out, int off) {
+        if (hex.length() != HASH_BYTES * 2)
+            throw new IllegalArgumentException("Bad asset hash " + hex);
+        for (int i = 0; i < HASH_BYTES; i++) {
+            out[off + i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+    }
+
+    private static String hex(byte[] bytes, int off) {
+        return hex(bytes, off, HASH_BYTES);
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static String hex(byte[] bytes, int off, int len) {
+        char[] chars = new char[len * 2];
+        for (int i = 0; i < len; i++) {
+            int b = bytes[off + i] & 0xff;
+            chars[i * 2] = HEX[b >>> 4];
+            chars[i * 2 + 1] = HEX[b & 0xf];
+        }
+        return new String(chars);
+    }
+}
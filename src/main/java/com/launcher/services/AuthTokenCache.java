@@ -0,0 +1,115 @@
+package com.launcher.services;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.AclEntry;
+import java.nio.file.attribute.AclEntryPermission;
+import java.nio.file.attribute.AclEntryType;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.EnumSet;
+import java.util.List;
+
+// Microsoft/Xbox/Minecraft tokens with their expiry times. Kept out of the shared state store in a
+// file only the current user can read, since the refresh token is a long-lived credential.
+public class AuthTokenCache {
+
+    public static class Tokens {
+        public String msAccessToken;
+        public long msAccessExpiresAt;
+        public String msRefreshToken;
+        public String xblToken;
+        public String userHash;
+        public long xblExpiresAt;
+        public String xstsToken;
+        public long xstsExpiresAt;
+        public String mcAccessToken;
+        public long mcExpiresAt;
+        public String username;
+        public String uuid;
+    }
+
+    private final Path file;
+    private final Gson gson = new Gson();
+    private Tokens tokens;
+
+    public AuthTokenCache(Path file) {
+        this.file = file;
+        load();
+    }
+
+    private void load() {
+        if (!Files.exists(file))
+            return;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            tokens = gson.fromJson(reader, Tokens.class);
+        } catch (Exception e) {
+            LogService.warn("Ignoring unreadable auth token cache: " + e.getMessage());
+        }
+    }
+
+    // Returns a private copy; callers mutate it and hand it back through save()
+    public synchronized Tokens get() {
+        return tokens != null ? gson.fromJson(gson.toJson(tokens), Tokens.class) : null;
+    }
+
+    public synchronized void save(Tokens updated) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.deleteIfExists(tmp);
+            createOwnerOnly(tmp);
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                gson.toJson(updated, writer);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tokens = gson.fromJson(gson.toJson(updated), Tokens.class);
+        } catch (IOException e) {
+            LogService.error("Failed to save auth token cache", e);
+        }
+    }
+
+    public synchronized void clear() {
+        tokens = null;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LogService.error("Failed to delete auth token cache", e);
+        }
+    }
+
+    // Permissions are set before any token is written, so there is no window where it is readable
+    private static void createOwnerOnly(Path path) throws IOException {
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            return;
+        }
+        Files.createFile(path);
+        AclFileAttributeView acl = Files.getFileAttributeView(path, AclFileAttributeView.class);
+        if (acl != null) {
+            UserPrincipal owner = Files.getOwner(path);
+            acl.setAcl(List.of(AclEntry.newBuilder()
+                    .setType(AclEntryType.ALLOW)
+                    .setPrincipal(owner)
+                    .setPermissions(EnumSet.of(AclEntryPermission.READ_DATA, AclEntryPermission.WRITE_DATA,
+                            AclEntryPermission.APPEND_DATA, AclEntryPermission.READ_ATTRIBUTES,
+                            AclEntryPermission.WRITE_ATTRIBUTES, AclEntryPermission.READ_ACL,
+                            AclEntryPermission.DELETE, AclEntryPermission.SYNCHRONIZE))
+                    .build()));
+        }
+    }
+}
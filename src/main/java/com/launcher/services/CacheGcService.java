@@ -0,0 +1,473 @@
+package com.launcher.services;
+
+import com.launcher.util.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Mark-and-sweep over the shared caches. Every version and modpack JSON on disk (plus the last
+// launch plan of each) is a root; the libraries, asset objects, runtimes, natives and derived
+// caches they reach are kept and everything else is garbage. scan() only reports; sweep() deletes,
+// oldest first, optionally stopping once the caches fit a size budget.
+public class CacheGcService {
+
+    // Anything this fresh may belong to an install that has not written its JSON yet
+    private static final long GRACE_MS = 24 * 60 * 60_000L;
+    private static final String RUNTIME_MANIFEST = "runtime.json";
+
+    public static class Item {
+        public final File file;
+        public final String category;
+        public final long bytes;
+        public final long modified;
+
+        Item(File file, String category, long bytes, long modified) {
+            this.file = file;
+            this.category = category;
+            this.bytes = bytes;
+            this.modified = modified;
+        }
+    }
+
+    public static class Report {
+        public final List<Item> unreachable = new ArrayList<>();
+        // Bytes of everything the collector manages, reachable or not
+        public long totalBytes;
+        public long unreachableBytes;
+        public final Map<String, long[]> byCategory = new LinkedHashMap<>();
+
+        void add(Item item) {
+            unreachable.add(item);
+            unreachableBytes += item.bytes;
+            long[] c = byCategory.computeIfAbsent(item.category, k -> new long[2]);
+            c[0]++;
+            c[1] += item.bytes;
+        }
+
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%s of %s is unreachable", formatSize(unreachableBytes), formatSize(totalBytes)));
+            for (Map.Entry<String, long[]> e : byCategory.entrySet()) {
+                sb.append(String.format("%n  %s: %d item(s), %s", e.getKey(), e.getValue()[0],
+                        formatSize(e.getValue()[1])));
+            }
+            return sb.toString();
+        }
+    }
+
+    // What the roots reach
+    private static class Marks {
+        final Set<String> files = new HashSet<>();
+        final Set<String> assetIndexes = new HashSet<>();
+        final Set<String> assetObjects = new HashSet<>();
+        final Set<String> runtimes = new HashSet<>();
+        final Set<String> instanceIds = new HashSet<>();
+    }
+
+    private static CacheGcService instance;
+    private final File gameDir = new File(Constants.GAME_DIR);
+    private final File versionsDir = new File(gameDir, "versions");
+    private final File librariesDir = new File(gameDir, "libraries");
+    private final File assetsDir = new File(gameDir, "assets");
+    private final File runtimesDir = new File(Constants.RUNTIMES_DIR);
+    private final File cdsDir = new File(gameDir, "cds");
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private CacheGcService() {
+    }
+
+    public static synchronized CacheGcService getInstance() {
+        if (instance == null) {
+            instance = new CacheGcService();
+        }
+        return instance;
+    }
+
+    // Dry run: nothing is deleted
+    public Report scan() throws IOException {
+        Marks marks = mark();
+        Report report = new Report();
+        sweepLibraries(marks, report);
+        sweepAssets(marks, report);
+        sweepNatives(report);
+        sweepRuntimes(marks, report);
+        sweepDerived(marks, report);
+        return report;
+    }
+
+    // Deletes unreachable items oldest first until the managed caches fit budgetBytes; a budget
+    // of 0 deletes everything unreachable. Returns the bytes freed.
+    public long sweep(Report report, long budgetBytes) {
+        List<Item> items = new ArrayList<>(report.unreachable);
+        items.sort((a, b) -> Long.compare(a.modified, b.modified));
+        long total = report.totalBytes;
+        long freed = 0;
+        int deleted = 0;
+        for (Item item : items) {
+            if (budgetBytes > 0 && total <= budgetBytes)
+                break;
+            if (delete(item.file)) {
+                total -= item.bytes;
+                freed += item.bytes;
+                deleted++;
+            }
+        }
+        removeEmptyDirs(librariesDir);
+        LogService.info("Cache GC removed " + deleted + " item(s), freed " + formatSize(freed));
+        return freed;
+    }
+
+    // Scan and sweep in the background
+    public CompletableFuture<Long> collect(long budgetBytes) {
+        return background(() -> {
+            Report report = scan();
+            LogService.info("Cache GC: " + report.summary());
+            return budgetBytes > 0 && report.totalBytes <= budgetBytes ? 0L : sweep(report, budgetBytes);
+        });
+    }
+
+    public CompletableFuture<Report> scanAsync() {
+        return background(this::scan);
+    }
+
+    public CompletableFuture<Long> sweepAsync(Report report) {
+        return background(() -> sweep(report, 0));
+    }
+
+    // One low-priority thread per task; at most one scan or sweep runs at a time
+    private <T> CompletableFuture<T> background(Callable<T> task) {
+        if (!running.compareAndSet(false, true))
+            return CompletableFuture.failedFuture(new IllegalStateException("a cache collection is already running"));
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Exception e) {
+                LogService.warn("Cache GC skipped: " + e.getMessage());
+                result.completeExceptionally(e);
+            } finally {
+                running.set(false);
+            }
+        }, "cache-gc");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+        return result;
+    }
+
+    // Startup hook: only collects when a budget is set and exceeded
+    public void collectIfOverBudget() {
+        long budget = SettingsService.getInstance().getCacheBudgetGb() * 1024L * 1024 * 1024;
+        if (budget > 0) {
+            collect(budget);
+        }
+    }
+
+    private Marks mark() throws IOException {
+        Marks marks = new Marks();
+        VersionProfileService profiles = VersionProfileService.getInstance();
+        for (File dir : instanceDirs()) {
+            File json = new File(dir, dir.getName() + ".json");
+            marks.instanceIds.add(dir.getName());
+            marks.files.add(new File(dir, dir.getName() + ".jar").getAbsolutePath());
+            // Marked from the merged chain, so a loader profile keeps its vanilla parent's libraries,
+            // assets and runtime. A profile (or parent) that cannot be read could reach anything:
+            // refuse to sweep at all rather than fetch or guess.
+            VersionProfile profile;
+            try {
+                profile = profiles.resolve(json, versionsDir, (parentId, target) -> {
+                    throw new IOException("parent " + parentId + " missing");
+                });
+            } catch (IOException | RuntimeException e) {
+                throw new IOException("cannot resolve " + json + " (" + e.getMessage() + ")", e);
+            }
+            for (VersionProfile.Library lib : profile.libraries) {
+                markLibrary(lib, marks);
+            }
+            if (profile.assetIndex != null && profile.assetIndex.id != null) {
+                marks.assetIndexes.add(profile.assetIndex.id);
+            }
+            if (profile.javaVersion != null) {
+                marks.runtimes.add("java-" + profile.javaVersion.majorVersion);
+                if (profile.javaVersion.component != null) {
+                    marks.runtimes.add(profile.javaVersion.component);
+                }
+            } else {
+                marks.runtimes.add("java-8");
+            }
+            LaunchPlan plan = LaunchPlan.load(dir);
+            if (plan != null) {
+                if (plan.classpath != null) {
+                    marks.files.addAll(plan.classpath);
+                }
+                markRuntime(plan.javaPath, marks);
+            }
+        }
+        markRuntime(SettingsService.getInstance().getJavaPath(), marks);
+
+        for (String id : marks.assetIndexes) {
+            File json = new File(new File(assetsDir, "indexes"), id + ".json");
+            if (!json.isFile())
+                continue;
+            AssetIndexService.AssetIndex index = AssetIndexService.getInstance().load(json);
+            for (int i = 0; i < index.size(); i++) {
+                marks.assetObjects.add(index.hash(i));
+            }
+        }
+        return marks;
+    }
+
+    private List<File> instanceDirs() {
+        List<File> dirs = new ArrayList<>();
+        for (File parent : new File[] { versionsDir, new File(gameDir, "modpacks") }) {
+            File[] children = parent.listFiles(File::isDirectory);
+            if (children == null)
+                continue;
+            for (File dir : children) {
+                if (new File(dir, dir.getName() + ".json").isFile()) {
+                    dirs.add(dir);
+                }
+            }
+        }
+        return dirs;
+    }
+
+    // Every file the launcher could fetch for this library, on any OS
+    private void markLibrary(VersionProfile.Library lib, Marks marks) {
+        if (lib.artifact != null && lib.artifact.path != null) {
+            marks.files.add(new File(librariesDir, lib.artifact.path).getAbsolutePath());
+        }
+        for (VersionProfile.Download classifier : lib.classifiers.values()) {
+            if (classifier.path != null) {
+                marks.files.add(new File(librariesDir, classifier.path).getAbsolutePath());
+            }
+        }
+        if (lib.name != null) {
+            String name = lib.name;
+            int at = name.indexOf('@');
+            String ext = at >= 0 ? name.substring(at + 1) : "jar";
+            if (at >= 0) {
+                name = name.substring(0, at);
+            }
+            String[] parts = name.split(":");
+            if (parts.length >= 3) {
+                String base = parts[0].replace(".", "/") + "/" + parts[1] + "/" + parts[2] + "/" + parts[1] + "-"
+                        + parts[2];
+                marks.files.add(new File(librariesDir, base + "." + ext).getAbsolutePath());
+                if (parts.length >= 4) {
+                    marks.files.add(new File(librariesDir, base + "-" + parts[3] + "." + ext).getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    // The runtime directory a java binary lives in, if it is one of ours
+    private void markRuntime(String javaPath, Marks marks) {
+        if (javaPath == null || javaPath.isEmpty())
+            return;
+        Path runtimes = runtimesDir.toPath().toAbsolutePath().normalize();
+        Path java = new File(javaPath).toPath().toAbsolutePath().normalize();
+        if (java.startsWith(runtimes) && java.getNameCount() > runtimes.getNameCount()) {
+            marks.runtimes.add(java.getName(runtimes.getNameCount()).toString());
+        }
+    }
+
+    private void sweepLibraries(Marks marks, Report report) throws IOException {
+        if (!librariesDir.isDirectory())
+            return;
+        long now = System.currentTimeMillis();
+        Files.walkFileTree(librariesDir.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                report.totalBytes += attrs.size();
+                long modified = attrs.lastModifiedTime().toMillis();
+                if (!marks.files.contains(file.toFile().getAbsolutePath()) && now - modified > GRACE_MS) {
+                    report.add(new Item(file.toFile(), "libraries", attrs.size(), modified));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void sweepAssets(Marks marks, Report report) throws IOException {
+        long now = System.currentTimeMillis();
+        File[] prefixes = new File(assetsDir, "objects").listFiles(File::isDirectory);
+        if (prefixes != null) {
+            for (File prefix : prefixes) {
+                File[] objects = prefix.listFiles();
+                if (objects == null)
+                    continue;
+                for (File object : objects) {
+                    long size = object.length();
+                    report.totalBytes += size;
+                    if (!marks.assetObjects.contains(object.getName()) && now - object.lastModified() > GRACE_MS) {
+                        report.add(new Item(object, "asset objects", size, object.lastModified()));
+                    }
+                }
+            }
+        }
+        File[] indexes = new File(assetsDir, "indexes").listFiles();
+        if (indexes != null) {
+            for (File index : indexes) {
+                String id = index.getName().replaceFirst("\\.(json|bin)$", "");
+                report.totalBytes += index.length();
+                if (!marks.assetIndexes.contains(id) && now - index.lastModified() > GRACE_MS) {
+                    report.add(new Item(index, "asset indexes", index.length(), index.lastModified()));
+                }
+            }
+        }
+        File[] virtual = new File(assetsDir, "virtual").listFiles(File::isDirectory);
+        if (virtual != null) {
+            for (File dir : virtual) {
+                long[] size = treeSize(dir);
+                report.totalBytes += size[0];
+                if (!marks.assetIndexes.contains(dir.getName()) && now - size[1] > GRACE_MS) {
+                    report.add(new Item(dir, "asset layouts", size[0], size[1]));
+                }
+            }
+        }
+    }
+
+    // Natives are re-extracted on every launch, so they only matter while their instance exists
+    private void sweepNatives(Report report) throws IOException {
+        for (File parent : new File[] { versionsDir, new File(gameDir, "modpacks") }) {
+            File[] children = parent.listFiles(File::isDirectory);
+            if (children == null)
+                continue;
+            for (File dir : children) {
+                File natives = new File(dir, "natives");
+                if (!natives.isDirectory())
+                    continue;
+                long[] size = treeSize(natives);
+                report.totalBytes += size[0];
+                if (!new File(dir, dir.getName() + ".json").isFile()) {
+                    report.add(new Item(natives, "natives", size[0], size[1]));
+                }
+            }
+        }
+    }
+
+    // Only directories our installers created (they carry runtime.json) or abandoned staging dirs
+    private void sweepRuntimes(Marks marks, Report report) throws IOException {
+        File[] runtimes = runtimesDir.listFiles(File::isDirectory);
+        if (runtimes == null)
+            return;
+        long now = System.currentTimeMillis();
+        for (File dir : runtimes) {
+            boolean staging = dir.getName().endsWith(".installing");
+            if (!staging && !new File(dir, RUNTIME_MANIFEST).isFile())
+                continue;
+            long[] size = treeSize(dir);
+            report.totalBytes += size[0];
+            if (staging ? now - size[1] > GRACE_MS : !marks.runtimes.contains(dir.getName())) {
+                report.add(new Item(dir, "runtimes", size[0], size[1]));
+            }
+        }
+    }
+
+    // Class-data archives of removed instances and uncompressed copies of unreachable jars
+    private void sweepDerived(Marks marks, Report report) {
+        long now = System.currentTimeMillis();
+        File[] archives = cdsDir.listFiles(File::isFile);
+        if (archives != null) {
+            for (File archive : archives) {
+                report.totalBytes += archive.length();
+                String name = archive.getName();
+                boolean live = false;
+                for (String id : marks.instanceIds) {
+                    live |= ClassDataSharingService.isArchiveOf(name, id);
+                }
+                // A fresh .jsa.tmp may be a dump a running game is still writing
+                if (!live && now - archive.lastModified() > GRACE_MS) {
+                    report.add(new Item(archive, "class-data archives", archive.length(), archive.lastModified()));
+                }
+            }
+        }
+        JarOptimizerService optimizer = JarOptimizerService.getInstance();
+        Set<String> live = optimizer.copiesFor(marks.files);
+        File[] copies = optimizer.getCacheDir().listFiles(File::isFile);
+        if (copies != null) {
+            for (File copy : copies) {
+                report.totalBytes += copy.length();
+                if (!live.contains(copy.getName()) && now - copy.lastModified() > GRACE_MS) {
+                    report.add(new Item(copy, "uncompressed jars", copy.length(), copy.lastModified()));
+                }
+            }
+        }
+    }
+
+    // { total bytes, newest modification }
+    private static long[] treeSize(File dir) throws IOException {
+        long[] result = { 0, dir.lastModified() };
+        Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                result[0] += attrs.size();
+                result[1] = Math.max(result[1], attrs.lastModifiedTime().toMillis());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return result;
+    }
+
+    private static boolean delete(File file) {
+        try {
+            if (file.isDirectory()) {
+                Files.walkFileTree(file.toPath(), new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) throws IOException {
+                        Files.delete(f);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path d, IOException e) throws IOException {
+                        Files.delete(d);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } else {
+                Files.deleteIfExists(file.toPath());
+            }
+            return true;
+        } catch (IOException e) {
+            LogService.warn("Cache GC could not delete " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void removeEmptyDirs(File dir) {
+        File[] children = dir.listFiles(File::isDirectory);
+        if (children == null)
+            return;
+        for (File child : children) {
+            removeEmptyDirs(child);
+            String[] left = child.list();
+            if (left != null && left.length == 0) {
+                child.delete();
+            }
+        }
+    }
+
+    public static String formatSize(long bytes) {
+        if (bytes >= 1024L * 1024 * 1024)
+            return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+        if (bytes >= 1024L * 1024)
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        return String.format("%d KB", bytes / 1024);
+    }
+}
@@ -0,0 +1,65 @@
+package com.launcher.services;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CancellationToken {
+
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true))
+            return;
+        for (Runnable listener : listeners) {
+            runQuietly(listener);
+        }
+        listeners.clear();
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled.get()) {
+            throw new CancellationException("Operation cancelled");
+        }
+    }
+
+    // Runs the action when the token is cancelled (immediately if it already is).
+    // Used to abort blocking work such as open connections.
+    public Registration onCancel(Runnable action) {
+        listeners.add(action);
+        if (cancelled.get() && listeners.remove(action)) {
+            runQuietly(action);
+        }
+        return () -> listeners.remove(action);
+    }
+
+    // Cancelling the returned future cancels this token, so callers can use either API.
+    public <T> CompletableFuture<T> bind(CompletableFuture<T> future) {
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                cancel();
+            }
+        });
+        return future;
+    }
+
+    private static void runQuietly(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            LogService.warn("Cancellation listener failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.launcher.services;
+
+import com.launcher.util.Constants;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+// Opt-in dynamic AppCDS (Java 13+). The first launch of a classpath dumps the classes it loaded
+// with -XX:ArchiveClassesAtExit; later launches map that archive with -XX:SharedArchiveFile and
+// skip parsing/verifying those classes. Archives are named by a hash of the runtime, the JVM
+// flags and every classpath entry (path, size, mtime), so any change simply selects a new name.
+public class ClassDataSharingService {
+
+    private static final int MIN_JAVA_MAJOR = 13;
+    // A dump still being written by a running game must not be promoted
+    private static final long SETTLE_MS = 60_000;
+
+    private static ClassDataSharingService instance;
+    private final File archiveDir = new File(Constants.GAME_DIR, "cds");
+
+    private ClassDataSharingService() {
+    }
+
+    public static synchronized ClassDataSharingService getInstance() {
+        if (instance == null) {
+            instance = new ClassDataSharingService();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return SettingsService.getInstance().isClassDataSharing();
+    }
+
+    // Archive names are <prefix><16 hex key>.jsa. Stored-jar launches keep their own archives, so
+    // benchmark mode (which alternates stored and original jars) doesn't re-dump on every launch.
+    public static String archivePrefix(String instanceId, boolean storedJars) {
+        return instanceId.replaceAll("[^A-Za-z0-9._-]", "_") + (storedJars ? "-stored-" : "-");
+    }
+
+    // Exactly prefix + key, so "1.20-" doesn't claim the archives of "1.20-fabric" or "1.20-stored"
+    static boolean isArchive(String fileName, String prefix) {
+        return fileName.startsWith(prefix)
+                && fileName.substring(prefix.length()).matches("[0-9a-f]{16}\\.jsa(\\.tmp)?");
+    }
+
+    // True if fileName is a live or in-progress archive of either variant of the instance
+    public static boolean isArchiveOf(String fileName, String instanceId) {
+        return isArchive(fileName, archivePrefix(instanceId, false))
+                || isArchive(fileName, archivePrefix(instanceId, true));
+    }
+
+    // Arguments for this launch; empty when disabled or the runtime can't do dynamic archives
+    public List<String> cdsArgs(String instanceId, boolean storedJars, String javaPath, int javaMajor,
+            List<String> jvmFlags, List<String> classpath) {
+        List<String> args = new ArrayList<>();
+        if (!isEnabled() || javaMajor < MIN_JAVA_MAJOR)
+            return args;
+        // The dump aborts the VM on exit if any classpath entry is a non-empty directory
+        for (String entry : classpath) {
+            if (new File(entry).isDirectory()) {
+                LogService.info("Class data sharing skipped: classpath contains directory " + entry);
+                return args;
+            }
+        }
+
+        archiveDir.mkdirs();
+        String prefix = archivePrefix(instanceId, storedJars);
+        File archive = new File(archiveDir, prefix + key(javaPath, jvmFlags, classpath) + ".jsa");
+        File dump = new File(archive.getPath() + ".tmp");
+        // A dump left by a launch whose launcher closed before the game exited
+        if (dump.isFile() && System.currentTimeMillis() - dump.lastModified() > SETTLE_MS) {
+            promote(dump, archive);
+        }
+
+        if (archive.isFile()) {
+            args.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            LogService.info("Using CDS archive " + archive.getName());
+        } else {
+            args.add("-XX:ArchiveClassesAtExit=" + dump.getAbsolutePath());
+            LogService.info("Recording CDS archive " + archive.getName() + " on exit");
+        }
+        pruneStale(prefix, archive);
+        return args;
+    }
+
+    // The JVM writes the dump as it exits; a crash leaves nothing (or a stub) behind, so only
+    // a finished, non-empty dump becomes the archive.
+    public void onExit(Process process, List<String> cdsArgs) {
+        for (String arg : cdsArgs) {
+            if (!arg.startsWith("-XX:ArchiveClassesAtExit="))
+                continue;
+            File dump = new File(arg.substring("-XX:ArchiveClassesAtExit=".length()));
+            File archive = new File(dump.getPath().substring(0, dump.getPath().length() - ".tmp".length()));
+            process.onExit().thenRun(() -> {
+                if (process.exitValue() == 0) {
+                    promote(dump, archive);
+                } else {
+                    dump.delete();
+                }
+            });
+        }
+    }
+
+    private void promote(File dump, File archive) {
+        if (!dump.isFile())
+            return;
+        try {
+            if (dump.length() == 0) {
+                Files.deleteIfExists(dump.toPath());
+                return;
+            }
+            Files.move(dump.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            LogService.info("CDS archive ready: " + archive.getName() + " (" + archive.length() / 1024 + " KB)");
+        } catch (Exception e) {
+            LogService.warn("Could not store CDS archive " + archive.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // Archives for an older classpath/runtime of the same instance are dead weight
+    private void pruneStale(String prefix, File current) {
+        File[] files = archiveDir.listFiles((dir, name) -> isArchive(name, prefix));
+        if (files == null)
+            return;
+        for (File f : files) {
+            if (f.getName().startsWith(current.getName()))
+                continue;
+            // Leave dumps alone while some game may still be writing them
+            if (f.getName().endsWith(".tmp") && System.currentTimeMillis() - f.lastModified() < SETTLE_MS)
+                continue;
+            if (f.delete()) {
+                LogService.debug("Removed stale CDS archive " + f.getName());
+            }
+        }
+    }
+
+    private String key(String javaPath, List<String> jvmFlags, List<String> classpath) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            File java = new File(javaPath);
+            update(digest, java.getAbsolutePath() + "|" + java.lastModified());
+            // GC and compressed-oops settings are baked into the archive
+            for (String flag : jvmFlags) {
+                update(digest, flag);
+            }
+            // Order matters for CDS: the archive records classpath positions
+            for (String entry : classpath) {
+                File f = new File(entry);
+                update(digest, f.getAbsolutePath() + "|" + f.length() + "|" + f.lastModified());
+            }
+            StringBuilder hex = new StringBuilder();
+            byte[] hash = digest.digest();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-1 unavailable", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,424 @@
+package com.launcher.services;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Incrementally indexes an instance's logs/latest.log and crash-reports/ while the game runs.
+// Only bytes appended since the last pass are read, so re-indexing a huge log is cheap.
+public class CrashAnalyzerService {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_SIGNATURES = 20;
+    private static final long WATCH_INTERVAL_SECONDS = 2;
+
+    private static final Pattern EXCEPTION = Pattern.compile(
+            "^(?:Caused by: |Exception in thread \"[^\"]*\" )?((?:[a-zA-Z_$][\\w$]*\\.)+[\\w$]*(?:Exception|Error|Throwable))(?::\\s*(.*))?$");
+    private static final Pattern FRAME_JAR = Pattern
+            .compile("^\\s*at .*[~\\[]\\[?([^\\[\\]/:%!]+\\.jar)(?:%23\\d+)?(?:!/)?(?::[^\\]]*)?\\]");
+    private static final Pattern TIMESTAMP = Pattern
+            .compile("^\\[(?:\\d{2}\\w{3}\\d{4} )?(\\d{2}):(\\d{2}):(\\d{2})(?:\\.(\\d{3}))?\\]");
+
+    // Jars that show up in nearly every trace and never explain a crash on their own
+    private static final List<String> PLATFORM_JARS = Arrays.asList("client", "minecraft", "forge-", "fmlcore",
+            "fmlloader", "fmlearlydisplay", "javafmllanguage", "lowcodelanguage", "mclanguage", "neoforge-",
+            "fabric-loader", "quilt-loader", "modlauncher", "securejarhandler", "bootstraplauncher", "eventbus",
+            "lwjgl", "java.base", "datafixerupper", "brigadier", "guava", "netty", "log4j", "gson", "asm",
+            "mixin", "sponge-mixin", "authlib", "jopt", "commons-", "fastutil", "oshi", "icu4j", "slf4j",
+            "blaze3d", "patched", "server-", "mixinextras");
+
+    // Ordered loading phases and the log lines that mark them
+    private static final String[][] PHASES = {
+            { "startup", "Setting user:" },
+            { "startup", "Loading Minecraft" },
+            { "mod loading", "ModLauncher running" },
+            { "mod loading", "Loading " /* "Loading 123 mods:" */ },
+            { "window creation", "Backend library: LWJGL" },
+            { "resource loading", "Reloading ResourceManager" },
+            { "sound engine", "Sound engine started" },
+            { "texture stitching", "-atlas" },
+            { "world loading", "Preparing level" },
+            { "world loading", "Connecting to" },
+            { "shutdown", "Stopping!" },
+    };
+
+    private static CrashAnalyzerService instance;
+    private final Gson gson = new Gson();
+    private final Map<String, CrashIndex> indexes = new ConcurrentHashMap<>();
+    // Completed by the final pass of the current watch, one per running instance
+    private final Map<String, CompletableFuture<CrashIndex>> exitPasses = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "crash-analyzer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    public static class FileCursor {
+        public long offset;
+        public long createdAt;
+    }
+
+    public static class Phase {
+        public String name;
+        public long atMillis; // relative to the first timestamp of the log
+
+        Phase(String name, long atMillis) {
+            this.name = name;
+            this.atMillis = atMillis;
+        }
+    }
+
+    public static class CrashIndex {
+        public Map<String, FileCursor> cursors = new HashMap<>();
+        public Map<String, Integer> exceptions = new LinkedHashMap<>();
+        public Map<String, Integer> modFrames = new LinkedHashMap<>();
+        public List<Phase> phases = new ArrayList<>();
+        public long firstTimestamp = -1;
+        public String crashReport;
+        public String crashDescription;
+        public String crashException;
+        public String culpritMod;
+        public String crashStage;
+        public long updatedAt;
+
+        // Parser state carried between incremental passes
+        transient String pendingException;
+        transient boolean awaitingCulprit;
+        transient boolean inSuspectedMods;
+    }
+
+    private CrashAnalyzerService() {
+    }
+
+    public static synchronized CrashAnalyzerService getInstance() {
+        if (instance == null) {
+            instance = new CrashAnalyzerService();
+        }
+        return instance;
+    }
+
+    // Keeps the index current while the process runs and does a final pass when it exits.
+    public void watch(String instanceId, File gameDir, File indexDir, Process process) {
+        long launchedAt = System.currentTimeMillis();
+        CompletableFuture<CrashIndex> exitPass = new CompletableFuture<>();
+        exitPasses.put(instanceId, exitPass);
+        ScheduledFuture<?> task = scheduler.scheduleWithFixedDelay(
+                () -> analyze(instanceId, gameDir, indexDir, launchedAt),
+                WATCH_INTERVAL_SECONDS, WATCH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        process.onExit().thenRun(() -> {
+            task.cancel(false);
+            scheduler.execute(() -> {
+                CrashIndex index = analyze(instanceId, gameDir, indexDir, launchedAt);
+                if (process.exitValue() != 0) {
+                    LogService.warn(instanceId + " exited with code " + process.exitValue() + ": "
+                            + describe(index));
+                }
+                exitPass.complete(index);
+            });
+        });
+    }
+
+    // Index after the final pass over the logs of a watched run that has exited (or is exiting)
+    public CompletableFuture<CrashIndex> afterExit(String instanceId) {
+        CompletableFuture<CrashIndex> exitPass = exitPasses.get(instanceId);
+        return exitPass != null ? exitPass : CompletableFuture.completedFuture(getIndex(instanceId));
+    }
+
+    public synchronized CrashIndex analyze(String instanceId, File gameDir, File indexDir, long since) {
+        CrashIndex index = indexes.computeIfAbsent(instanceId, id -> load(indexDir));
+        try {
+            // The watch polls every couple of seconds; only a pass that read something is saved
+            boolean changed = false;
+            File latestLog = new File(gameDir, "logs/latest.log");
+            if (latestLog.isFile()) {
+                changed |= indexFile(index, latestLog, false);
+            }
+
+            File[] reports = new File(gameDir, "crash-reports").listFiles((dir, name) -> name.endsWith(".txt"));
+            if (reports != null) {
+                Arrays.sort(reports, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+                for (File report : reports) {
+                    FileCursor cursor = index.cursors.get(report.getAbsolutePath());
+                    if (report.lastModified() < since || (cursor != null && cursor.offset >= report.length()))
+                        continue;
+                    if (cursor == null) {
+                        index.crashReport = report.getName();
+                        index.crashDescription = null;
+                        index.crashException = null;
+                        index.culpritMod = null;
+                        index.inSuspectedMods = false;
+                    }
+                    changed |= indexFile(index, report, true);
+                }
+            }
+            if (index.crashReport != null && index.crashStage == null) {
+                index.crashStage = currentStage(index);
+                changed = true;
+            }
+            if (changed) {
+                index.updatedAt = System.currentTimeMillis();
+                save(index, indexDir);
+            }
+        } catch (IOException e) {
+            LogService.error("Failed to index logs for " + instanceId, e);
+        }
+        return index;
+    }
+
+    public CrashIndex getIndex(String instanceId) {
+        return indexes.get(instanceId);
+    }
+
+    // "Crashed in mod X at stage Y" style one-liner for the dashboard
+    public String describe(CrashIndex index) {
+        if (index == null)
+            return "No log information available";
+        String stage = index.crashStage != null ? index.crashStage : currentStage(index);
+        String exception = index.crashException != null ? index.crashException : topException(index);
+        String mod = index.culpritMod != null ? index.culpritMod : topMod(index);
+
+        StringBuilder sb = new StringBuilder(index.crashReport != null ? "Crashed" : "Exited");
+        if (mod != null)
+            sb.append(" in mod ").append(mod);
+        if (stage != null)
+            sb.append(" during ").append(stage);
+        if (exception != null)
+            sb.append(" (").append(exception).append(")");
+        return sb.toString();
+    }
+
+    // Returns true if the cursor moved (new bytes read, or the file was restarted)
+    private boolean indexFile(CrashIndex index, File file, boolean crashReport) throws IOException {
+        String key = file.getAbsolutePath();
+        FileCursor cursor = index.cursors.computeIfAbsent(key, k -> new FileCursor());
+        long createdAt = Files.readAttributes(file.toPath(), BasicFileAttributes.class).creationTime().toMillis();
+        long size = file.length();
+        long startOffset = cursor.offset;
+        boolean restarted = false;
+
+        // latest.log is recreated on each launch: start the per-run parts of the index over
+        if (size < cursor.offset || createdAt != cursor.createdAt) {
+            restarted = true;
+            cursor.offset = 0;
+            cursor.createdAt = createdAt;
+            if (!crashReport) {
+                index.exceptions.clear();
+                index.modFrames.clear();
+                index.phases.clear();
+                index.firstTimestamp = -1;
+                index.crashReport = null;
+                index.crashStage = null;
+            }
+        }
+        if (size == cursor.offset)
+            return restarted;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.position(cursor.offset);
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+            while (channel.read(chunk) > 0) {
+                chunk.flip();
+                int lineStart = 0;
+                byte[] data = chunk.array();
+                for (int i = 0; i < chunk.limit(); i++) {
+                    if (data[i] == '\n') {
+                        int end = i > lineStart && data[i - 1] == '\r' ? i - 1 : i;
+                        indexLine(index, new String(data, lineStart, end - lineStart, StandardCharsets.UTF_8),
+                                crashReport);
+                        lineStart = i + 1;
+                    }
+                }
+                cursor.offset += lineStart;
+                if (lineStart == 0 && chunk.limit() == chunk.capacity()) {
+                    // Absurdly long line: skip it instead of growing the buffer
+                    cursor.offset += chunk.limit();
+                    chunk.clear();
+                } else {
+                    chunk.position(lineStart);
+                    chunk.compact();
+                }
+            }
+        }
+        return restarted || cursor.offset != startOffset;
+    }
+
+    private void indexLine(CrashIndex index, String line, boolean crashReport) {
+        if (crashReport) {
+            if (index.crashDescription == null && line.startsWith("Description: ")) {
+                index.crashDescription = line.substring("Description: ".length());
+            }
+            if (line.startsWith("Suspected Mod")) {
+                index.inSuspectedMods = true;
+            } else if (index.inSuspectedMods && line.trim().startsWith("Mod File: ")) {
+                String path = line.trim().substring("Mod File: ".length()).replace('\\', '/');
+                if (index.culpritMod == null) {
+                    index.culpritMod = path.substring(path.lastIndexOf('/') + 1);
+                }
+            } else if (line.isEmpty()) {
+                index.inSuspectedMods = false;
+            }
+        } else {
+            indexPhase(index, line);
+        }
+
+        // Cheap prefilter before any regex work
+        boolean frame = line.startsWith("\tat ") || line.startsWith("    at ");
+        if (frame) {
+            if (index.awaitingCulprit && line.indexOf(".jar") > 0) {
+                Matcher m = FRAME_JAR.matcher(line);
+                if (m.find() && !isPlatformJar(m.group(1))) {
+                    String jar = m.group(1);
+                    index.modFrames.merge(jar, 1, Integer::sum);
+                    index.awaitingCulprit = false;
+                    if (crashReport && index.culpritMod == null) {
+                        index.culpritMod = jar;
+                    }
+                }
+            }
+            if (index.pendingException != null) {
+                // Signature is the exception type plus its top frame
+                String top = line.trim().substring(3);
+                int close = top.indexOf(')');
+                addSignature(index, index.pendingException + " @ " + (close > 0 ? top.substring(0, close + 1) : top));
+                index.pendingException = null;
+            }
+            return;
+        }
+
+        if (line.indexOf("Exception") < 0 && line.indexOf("Error") < 0 && line.indexOf("Throwable") < 0)
+            return;
+        Matcher m = EXCEPTION.matcher(line);
+        if (m.matches()) {
+            index.pendingException = m.group(1);
+            index.awaitingCulprit = true;
+            if (crashReport && index.crashException == null) {
+                index.crashException = m.group(1);
+            }
+        }
+    }
+
+    private void indexPhase(CrashIndex index, String line) {
+        if (line.isEmpty() || line.charAt(0) != '[')
+            return;
+        for (String[] phase : PHASES) {
+            if (line.contains(phase[1])) {
+                if (phase[1].equals("Loading ") && !line.contains(" mods")) {
+                    continue;
+                }
+                long at = timestampOf(line);
+                if (at < 0)
+                    return;
+                if (index.firstTimestamp < 0) {
+                    index.firstTimestamp = at;
+                }
+                long relative = at - index.firstTimestamp;
+                if (relative < 0) {
+                    relative += TimeUnit.DAYS.toMillis(1); // ran past midnight
+                }
+                Phase last = index.phases.isEmpty() ? null : index.phases.get(index.phases.size() - 1);
+                if (last == null || !last.name.equals(phase[0])) {
+                    index.phases.add(new Phase(phase[0], relative));
+                }
+                return;
+            }
+        }
+        if (index.firstTimestamp < 0) {
+            long at = timestampOf(line);
+            if (at >= 0) {
+                index.firstTimestamp = at;
+            }
+        }
+    }
+
+    private long timestampOf(String line) {
+        Matcher m = TIMESTAMP.matcher(line);
+        if (!m.find())
+            return -1;
+        long millis = ((Long.parseLong(m.group(1)) * 60 + Long.parseLong(m.group(2))) * 60
+                + Long.parseLong(m.group(3))) * 1000;
+        if (m.group(4) != null) {
+            millis += Long.parseLong(m.group(4));
+        }
+        return millis;
+    }
+
+    private void addSignature(CrashIndex index, String signature) {
+        if (index.exceptions.size() >= MAX_SIGNATURES && !index.exceptions.containsKey(signature))
+            return;
+        index.exceptions.merge(signature, 1, Integer::sum);
+    }
+
+    private boolean isPlatformJar(String jar) {
+        String name = jar.toLowerCase();
+        for (String prefix : PLATFORM_JARS) {
+            if (name.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    private String currentStage(CrashIndex index) {
+        return index.phases.isEmpty() ? null : index.phases.get(index.phases.size() - 1).name;
+    }
+
+    private String topException(CrashIndex index) {
+        return maxKey(index.exceptions);
+    }
+
+    private String topMod(CrashIndex index) {
+        return maxKey(index.modFrames);
+    }
+
+    private String maxKey(Map<String, Integer> counts) {
+        return counts.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+    }
+
+    private CrashIndex load(File indexDir) {
+        File file = new File(indexDir, "crash-index.json");
+        if (file.exists()) {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                CrashIndex index = gson.fromJson(reader, CrashIndex.class);
+                if (index != null)
+                    return index;
+            } catch (Exception e) {
+                LogService.warn("Discarding unreadable crash index " + file.getAbsolutePath());
+            }
+        }
+        return new CrashIndex();
+    }
+
+    private void save(CrashIndex index, File indexDir) throws IOException {
+        indexDir.mkdirs();
+        File tmp = new File(indexDir, "crash-index.json.tmp");
+        try (Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(index, writer);
+        }
+        Files.move(tmp.toPath(), new File(indexDir, "crash-index.json").toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+}
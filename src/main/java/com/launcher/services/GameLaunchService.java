@@ -4,20 +4,23 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.launcher.util.ArgFile;
 import com.launcher.util.Constants;
 
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 
 public class GameLaunchService {
 
+    private static final int MAX_LOGGED_ARG = 512;
+
     private final Gson gson = new Gson();
     private final String gameDir = Constants.GAME_DIR;
     private final String assetsDir = gameDir + "/assets";
@@ -26,7 +29,12 @@ public class GameLaunchService {
 
     public CompletableFuture<Process> launchGame(VersionInfo version, SessionService session,
             LaunchCallback callback) {
-        return CompletableFuture.supplyAsync(() -> {
+        return launchGame(version, session, callback, new CancellationToken());
+    }
+
+    public CompletableFuture<Process> launchGame(VersionInfo version, SessionService session,
+            LaunchCallback callback, CancellationToken token) {
+        return token.bind(CompletableFuture.supplyAsync(() -> {
             try {
                 LogService.info("Preparing to launch " + version.getId() + "...");
                 callback.onStatusUpdate("Preparing to launch " + version.getId() + "...");
@@ -38,203 +46,157 @@ public class GameLaunchService {
                 new File(versionsDir).mkdirs();
 
                 // 2. Download Version JSON
-                File versionFolder;
-                if ("modpack".equals(version.getType())) {
-                    versionFolder = new File(gameDir + "/modpacks", version.getId());
-                } else {
-                    versionFolder = new File(versionsDir, version.getId());
-                }
+                File versionFolder = getInstanceDir(version);
                 versionFolder.mkdirs();
                 File versionJsonFile = new File(versionFolder, version.getId() + ".json");
 
                 callback.onStatusUpdate("Fetching version info...");
                 if (!versionJsonFile.exists()) {
                     if (version.getUrl() != null) {
-                        downloadFile(version.getUrl(), versionJsonFile);
+                        downloadFile(version.getUrl(), versionJsonFile, token);
                     } else {
                         throw new IOException("Version JSON not found and no URL provided for: " + version.getId());
                     }
                 }
 
-                JsonObject versionJson;
-                try (FileReader reader = new FileReader(versionJsonFile)) {
-                    versionJson = gson.fromJson(reader, JsonObject.class);
-                }
-
-                // Handle Inheritance (inheritsFrom)
-                if (versionJson.has("inheritsFrom")) {
-                    String parentId = versionJson.get("inheritsFrom").getAsString();
-                    File parentFolder = new File(versionsDir, parentId);
-                    parentFolder.mkdirs();
-                    File parentJsonFile = new File(parentFolder, parentId + ".json");
-
-                    if (!parentJsonFile.exists()) {
-                        LogService.info("Parent version " + parentId + " not found locally. Attempting to fetch...");
-                        String parentUrl = fetchBaseVersionUrl(parentId);
-                        if (parentUrl != null) {
-                            downloadFile(parentUrl, parentJsonFile);
-                        } else {
-                            throw new IOException("Could not find URL for parent version: " + parentId
-                                    + ". Check internet connection.");
-                        }
-                    }
-
-                    if (parentJsonFile.exists()) {
-                        JsonObject parentJson;
-                        try (FileReader reader = new FileReader(parentJsonFile)) {
-                            parentJson = gson.fromJson(reader, JsonObject.class);
-                        }
-                        if (!versionJson.has("mainClass"))
-                            versionJson.add("mainClass", parentJson.get("mainClass"));
-                        if (!versionJson.has("minecraftArguments"))
-                            versionJson.add("minecraftArguments", parentJson.get("minecraftArguments"));
-                        if (!versionJson.has("arguments"))
-                            versionJson.add("arguments", parentJson.get("arguments"));
-                        if (!versionJson.has("assetIndex"))
-                            versionJson.add("assetIndex", parentJson.get("assetIndex"));
-                        if (!versionJson.has("javaVersion"))
-                            versionJson.add("javaVersion", parentJson.get("javaVersion"));
-
-                        if (parentJson.has("libraries")) {
-                            JsonArray parentLibs = parentJson.getAsJsonArray("libraries");
-                            if (versionJson.has("libraries")) {
-                                versionJson.getAsJsonArray("libraries").addAll(parentLibs);
-                            } else {
-                                versionJson.add("libraries", parentLibs);
+                // Whole inheritsFrom chain, merged; memoized until one of the files changes
+                VersionProfile profile = VersionProfileService.getInstance().resolve(versionJsonFile,
+                        new File(versionsDir), (parentId, target) -> {
+                            String parentUrl = fetchBaseVersionUrl(parentId);
+                            if (parentUrl == null) {
+                                throw new IOException("Could not find URL for parent version: " + parentId
+                                        + ". Check internet connection.");
                             }
-                        }
-
-                        if (!versionJson.has("downloads") && parentJson.has("downloads")) {
-                            versionJson.add("downloads", parentJson.get("downloads"));
-                        }
-                    }
-                }
+                            downloadFile(parentUrl, target, token);
+                        });
 
                 // 3. Download Client JAR
+                token.throwIfCancelled();
                 callback.onStatusUpdate("Downloading game client...");
-                JsonObject downloads = versionJson.getAsJsonObject("downloads");
-                if (downloads != null && downloads.has("client")) {
-                    JsonObject clientDownload = downloads.getAsJsonObject("client");
-                    String clientUrl = clientDownload.get("url").getAsString();
+                if (profile.client != null && profile.client.url != null) {
                     File clientJar = new File(versionFolder, version.getId() + ".jar");
-                    if (!clientJar.exists()) {
-                        downloadFile(clientUrl, clientJar);
+                    if (!LocalStateStore.getInstance().isIntact(clientJar)) {
+                        downloadFile(profile.client.url, clientJar, token);
                     }
                 }
 
                 // 4. Download Libraries & Extract Natives
                 callback.onStatusUpdate("Downloading libraries...");
-                JsonArray libraries = versionJson.getAsJsonArray("libraries");
                 List<String> classpath = new ArrayList<>();
-                java.util.Set<String> addedArtifacts = new java.util.HashSet<>();
                 File nativesDir = new File(versionFolder, "natives");
                 nativesDir.mkdirs();
 
-                if (libraries != null) {
-                    for (JsonElement libElement : libraries) {
-                        JsonObject lib = libElement.getAsJsonObject();
+                // One version per artifact across the merged profiles, before anything is downloaded
+                List<VersionProfile.Library> applicable = new ArrayList<>();
+                for (VersionProfile.Library lib : profile.libraries) {
+                    if (checkRules(lib)) {
+                        applicable.add(lib);
+                    }
+                }
+                LibraryResolver.Resolution resolution = new LibraryResolver(
+                        LibraryResolver.parseRule(SettingsService.getInstance().getLibraryRule()))
+                        .resolve(applicable);
+                for (String pruned : resolution.pruned) {
+                    LogService.info("Pruned library " + pruned);
+                }
+
+                for (VersionProfile.Library lib : resolution.libraries) {
+                    token.throwIfCancelled();
 
-                        if (!checkRules(lib))
-                            continue;
+                    // Artifact (Jar)
+                    if (lib.artifact != null && lib.artifact.path != null) {
+                        File libFile = new File(librariesDir, lib.artifact.path);
 
-                        // Deduplication
-                        if (lib.has("name")) {
-                            String name = lib.get("name").getAsString();
-                            String[] parts = name.split(":");
-                            if (parts.length >= 2) {
-                                String key = parts[0] + ":" + parts[1];
-                                if (parts.length >= 4) {
-                                    key += ":" + parts[3];
-                                }
-                                if (addedArtifacts.contains(key)) {
-                                    continue;
-                                }
-                                addedArtifacts.add(key);
-                            }
+                        if (!LocalStateStore.getInstance().isIntact(libFile)) {
+                            downloadFile(lib.artifact.url, libFile, token);
                         }
+                        classpath.add(libFile.getAbsolutePath());
+                    } else if (lib.name != null) {
+                        // Maven style
+                        String name = lib.name;
+                        String[] parts = name.split(":");
+                        if (parts.length >= 3) {
+                            String domain = parts[0].replace(".", "/");
+                            String artifactId = parts[1];
+                            String libVersion = parts[2];
+                            String path = domain + "/" + artifactId + "/" + libVersion + "/" + artifactId + "-"
+                                    + libVersion + ".jar";
 
-                        // Artifact (Jar)
-                        JsonObject downloadsObj = lib.getAsJsonObject("downloads");
-                        if (downloadsObj != null && downloadsObj.has("artifact")) {
-                            JsonObject artifact = downloadsObj.getAsJsonObject("artifact");
-                            String path = artifact.get("path").getAsString();
-                            String url = artifact.get("url").getAsString();
                             File libFile = new File(librariesDir, path);
-
-                            if (!libFile.exists()) {
-                                downloadFile(url, libFile);
-                            }
-                            classpath.add(libFile.getAbsolutePath());
-                        } else if (lib.has("name")) {
-                            // Maven style
-                            String name = lib.get("name").getAsString();
-                            String[] parts = name.split(":");
-                            if (parts.length >= 3) {
-                                String domain = parts[0].replace(".", "/");
-                                String artifactId = parts[1];
-                                String libVersion = parts[2];
-                                String path = domain + "/" + artifactId + "/" + libVersion + "/" + artifactId + "-"
-                                        + libVersion + ".jar";
-
-                                File libFile = new File(librariesDir, path);
-                                if (!libFile.exists()) {
-                                    String baseUrl = lib.has("url") ? lib.get("url").getAsString()
-                                            : "https://repo1.maven.org/maven2/";
-                                    if (!baseUrl.endsWith("/"))
-                                        baseUrl += "/";
-                                    try {
-                                        downloadFile(baseUrl + path, libFile);
-                                    } catch (IOException e) {
-                                        if (!baseUrl.contains("repo1.maven.org")) {
-                                            try {
-                                                downloadFile("https://repo1.maven.org/maven2/" + path, libFile);
-                                            } catch (IOException ex) {
-                                                LogService.error("Failed to download library: " + name);
-                                            }
+                            if (!LocalStateStore.getInstance().isIntact(libFile)) {
+                                String baseUrl = lib.url != null ? lib.url : "https://repo1.maven.org/maven2/";
+                                if (!baseUrl.endsWith("/"))
+                                    baseUrl += "/";
+                                try {
+                                    downloadFile(baseUrl + path, libFile, token);
+                                } catch (IOException e) {
+                                    if (!baseUrl.contains("repo1.maven.org")) {
+                                        try {
+                                            downloadFile("https://repo1.maven.org/maven2/" + path, libFile,
+                                                    token);
+                                        } catch (IOException ex) {
+                                            LogService.error("Failed to download library: " + name);
                                         }
                                     }
                                 }
-                                if (libFile.exists()) {
-                                    classpath.add(libFile.getAbsolutePath());
-
-                                    if (parts.length >= 4) {
-                                        String classifier = parts[3];
-                                        if (classifier.contains("natives")) {
-                                            LogService.info("Found Maven native library: " + name);
-                                            extractNatives(libFile, nativesDir);
-                                        }
+                            }
+                            if (libFile.exists()) {
+                                classpath.add(libFile.getAbsolutePath());
+
+                                if (parts.length >= 4) {
+                                    String classifier = parts[3];
+                                    if (classifier.contains("natives")) {
+                                        LogService.info("Found Maven native library: " + name);
+                                        extractNatives(libFile, nativesDir);
                                     }
                                 }
                             }
                         }
+                    }
 
-                        // Classifiers (Natives)
-                        if (downloadsObj != null && downloadsObj.has("classifiers")) {
-                            JsonObject classifiers = downloadsObj.getAsJsonObject("classifiers");
-                            for (String key : classifiers.keySet()) {
-                                if (key.contains("natives-windows")) {
-                                    LogService.info("Found native classifier: " + key);
-                                    JsonObject nativeArtifact = classifiers.getAsJsonObject(key);
-                                    String path = nativeArtifact.get("path").getAsString();
-                                    String url = nativeArtifact.get("url").getAsString();
-                                    File nativeFile = new File(librariesDir, path);
-
-                                    if (!nativeFile.exists()) {
-                                        downloadFile(url, nativeFile);
-                                    }
-                                    extractNatives(nativeFile, nativesDir);
-                                }
+                    // Classifiers (Natives)
+                    for (java.util.Map.Entry<String, VersionProfile.Download> classifier : lib.classifiers.entrySet()) {
+                        if (classifier.getKey().contains("natives-windows")) {
+                            LogService.info("Found native classifier: " + classifier.getKey());
+                            File nativeFile = new File(librariesDir, classifier.getValue().path);
+
+                            if (!LocalStateStore.getInstance().isIntact(nativeFile)) {
+                                downloadFile(classifier.getValue().url, nativeFile, token);
                             }
+                            extractNatives(nativeFile, nativesDir);
                         }
                     }
                 }
 
                 classpath.add(new File(versionFolder, version.getId() + ".jar").getAbsolutePath());
+                // Uncompressed copies of the jars where available (opt-in); originals otherwise
+                JarOptimizerService.Plan jarPlan = JarOptimizerService.getInstance().plan(version.getId(), classpath);
+                List<String> launchClasspath = jarPlan.classpath;
+                if (jarPlan.optimized) {
+                    LogService.info("Using " + jarPlan.substituted + " stored jar(s) for " + version.getId());
+                }
+
+                // Pull the jars into the page cache while assets download and the command is built
+                PrewarmService.getInstance().prewarm(version.getId(), new ArrayList<>(launchClasspath),
+                        getWorkingDir(version));
 
                 // 4b. Download Assets
-                if (versionJson.has("assetIndex")) {
+                String gameAssetsDir = assetsDir;
+                if (profile.assetIndex != null) {
                     callback.onStatusUpdate("Downloading assets...");
-                    downloadAssets(versionJson.getAsJsonObject("assetIndex"), callback);
+                    AssetIndexService.AssetIndex assetIndex = downloadAssets(profile.assetIndex, callback, token);
+                    // Old versions read assets by name: "virtual" from assets/virtual/<id>,
+                    // map_to_resources from <gameDir>/resources
+                    File objectsDir = new File(assetsDir, "objects");
+                    if (assetIndex.virtual) {
+                        File virtualDir = new File(new File(assetsDir, "virtual"), assetIndex.id);
+                        AssetIndexService.getInstance().layout(assetIndex, objectsDir, virtualDir);
+                        gameAssetsDir = virtualDir.getAbsolutePath();
+                    }
+                    if (assetIndex.mapToResources) {
+                        AssetIndexService.getInstance().layout(assetIndex, objectsDir,
+                                new File(getWorkingDir(version), "resources"));
+                    }
                 }
 
                 // Debug & Emergency Native Check
@@ -262,32 +224,61 @@ public class GameLaunchService {
 
                 // 5. Build Command
                 callback.onStatusUpdate("Starting game...");
-                String mainClass = versionJson.get("mainClass").getAsString();
-
-                int javaMajorVersion = 8;
-                if (versionJson.has("javaVersion")) {
-                    javaMajorVersion = versionJson.getAsJsonObject("javaVersion").get("majorVersion").getAsInt();
+                String mainClass = profile.mainClass;
+                if (mainClass == null) {
+                    throw new IOException("No mainClass in " + version.getId() + " or its parents");
                 }
 
-                SettingsService settings = SettingsService.getInstance();
-                String javaPath;
-                String settingsPath = settings.getJavaPath();
-                if (settingsPath == null || settingsPath.isEmpty() || settingsPath.equals("java")
-                        || settingsPath.contains("jdk-17")) {
-                    javaPath = new JavaRuntimeService().getJavaPath(javaMajorVersion,
-                            status -> callback.onStatusUpdate(status));
-                } else {
-                    javaPath = settingsPath;
-                }
+                int javaMajorVersion = profile.javaVersion != null ? profile.javaVersion.majorVersion : 8;
+                String javaComponent = profile.javaVersion != null ? profile.javaVersion.component : null;
 
-                int ram = settings.getRam();
+                SettingsService settings = SettingsService.getInstance();
+                String javaPath = selectJava(settings.getJavaPath(), javaMajorVersion, javaComponent, callback, token);
+
+                int runtimeMajor = runtimeMajor(javaPath, javaMajorVersion);
+                HeapAdvisorService heapAdvisor = HeapAdvisorService.getInstance();
+                File workingDir = getWorkingDir(version);
+
+                List<String> jvmArgs = new ArrayList<>();
+                jvmArgs.addAll(heapAdvisor.heapArgs(version.getId(), settings.getRam()));
+                jvmArgs.addAll(JvmProfileService.getInstance().launchFlags(version.getId(), javaPath, runtimeMajor,
+                        heapAdvisor.heapMaxMb(version.getId(), settings.getRam())));
+                jvmArgs.addAll(heapAdvisor.gcLogArgs(versionFolder, workingDir, runtimeMajor));
+                ClassDataSharingService cds = ClassDataSharingService.getInstance();
+                List<String> cdsArgs = cds.cdsArgs(version.getId(), jarPlan.optimized, javaPath, runtimeMajor,
+                        new ArrayList<>(jvmArgs), launchClasspath);
+                jvmArgs.addAll(cdsArgs);
+                jvmArgs.add("-Djava.library.path=" + nativesDir.getAbsolutePath());
+                jvmArgs.add("-cp");
+                jvmArgs.add(String.join(File.pathSeparator, launchClasspath));
+
+                LaunchPlan plan = new LaunchPlan();
+                plan.versionId = version.getId();
+                plan.javaPath = javaPath;
+                plan.javaMajor = runtimeMajor;
+                plan.mainClass = mainClass;
+                plan.jvmArgCount = jvmArgs.size();
+                plan.classpathEntries = launchClasspath.size();
+                plan.classpath = launchClasspath;
+                plan.prunedLibraries = resolution.pruned;
 
                 List<String> command = new ArrayList<>();
                 command.add(javaPath);
-                command.add("-Xmx" + ram + "M");
-                command.add("-Djava.library.path=" + nativesDir.getAbsolutePath());
-                command.add("-cp");
-                command.add(String.join(File.pathSeparator, classpath));
+                boolean useArgFile = runtimeMajor >= 9 && ArgFile.canEncode(jvmArgs);
+                if (runtimeMajor >= 9 && !useArgFile) {
+                    LogService.info("JVM arguments not representable in " + ArgFile.CHARSET
+                            + "; passing them on the command line");
+                }
+                if (useArgFile) {
+                    // JVM options and the (huge) classpath go through an @argfile: the argv stays small,
+                    // and the file is only rewritten when the resolved plan changes.
+                    File argFile = new File(new File(versionFolder, "launcher-logs"), "jvm.args");
+                    plan.argFile = argFile.getAbsolutePath();
+                    plan.argFileReused = !ArgFile.write(argFile, jvmArgs);
+                    command.add("@" + argFile.getAbsolutePath());
+                } else {
+                    command.addAll(jvmArgs);
+                }
                 command.add(mainClass);
 
                 command.add("--version");
@@ -299,11 +290,11 @@ public class GameLaunchService {
                     command.add(gameDir);
                 }
                 command.add("--assetsDir");
-                command.add(assetsDir);
+                command.add(gameAssetsDir);
 
-                if (versionJson.has("assetIndex")) {
+                if (profile.assetIndex != null) {
                     command.add("--assetIndex");
-                    command.add(versionJson.getAsJsonObject("assetIndex").get("id").getAsString());
+                    command.add(profile.assetIndex.id);
                 }
 
                 command.add("--uuid");
@@ -326,35 +317,113 @@ public class GameLaunchService {
                 }
 
                 ProcessBuilder pb = new ProcessBuilder(command);
-                File workingDir = "modpack".equals(version.getType()) ? versionFolder : new File(gameDir);
                 pb.directory(workingDir);
-                pb.inheritIO();
+                // Output is pumped into GameOutputService instead of the launcher's console
+                pb.redirectInput(ProcessBuilder.Redirect.INHERIT);
 
-                LogService.info("Launch Command: " + String.join(" ", command));
+                LogService.info("Launch Command: " + describeCommand(command));
+                if (plan.argFile != null) {
+                    LogService.info("JVM arguments: " + plan.argFile + (plan.argFileReused ? " (unchanged)" : ""));
+                }
                 LogService.info("Working Directory: " + workingDir.getAbsolutePath());
                 LogService.info("Natives Path Argument: " + "-Djava.library.path=" + nativesDir.getAbsolutePath());
 
+                token.throwIfCancelled();
+                long spawnStart = System.nanoTime();
                 Process process = pb.start();
+                plan.spawnMillis = (System.nanoTime() - spawnStart) / 1_000_000;
+                plan.commandLength = command.stream().mapToInt(String::length).sum() + command.size();
+                plan.launchedAt = System.currentTimeMillis();
+                plan.save(versionFolder);
+                LogService.info("Process spawned in " + plan.spawnMillis + " ms (argv " + plan.commandLength
+                        + " chars)");
+                cds.onExit(process, cdsArgs);
+                File launcherLogsDir = new File(versionFolder, "launcher-logs");
+                GameOutputService.getInstance().capture(version.getId(), process, launcherLogsDir);
+                CrashAnalyzerService.getInstance().watch(version.getId(), workingDir, launcherLogsDir, process);
+                JarOptimizerService.getInstance().watch(version.getId(), process, jarPlan);
 
                 callback.onStatusUpdate("Game running!");
                 return process;
 
+            } catch (CancellationException e) {
+                LogService.info("Launch cancelled for " + version.getId());
+                callback.onStatusUpdate("Cancelled");
+                return null;
             } catch (Exception e) {
                 LogService.error("Launch failed for " + version.getId(), e);
                 callback.onStatusUpdate("Error: " + e.getMessage());
                 return null;
             }
-        });
+        }));
 
     }
 
-    public boolean isVersionInstalled(VersionInfo version) {
-        File versionFolder;
+    // The configured java is used unless it is known to be the wrong major version and a matching
+    // runtime is available; otherwise the registry (or a download) supplies one.
+    private String selectJava(String configured, int major, String component, LaunchCallback callback,
+            CancellationToken token) {
+        JavaRuntimeRegistry registry = JavaRuntimeRegistry.getInstance();
+        if (configured != null && !configured.isEmpty() && !configured.equals("java")) {
+            JavaRuntimeRegistry.JavaRuntime runtime = registry.describe(configured);
+            if (runtime == null || runtime.major == major) {
+                return configured;
+            }
+            JavaRuntimeRegistry.JavaRuntime match = registry.find(major);
+            if (match == null) {
+                LogService.warn("Configured Java " + runtime.version + " does not match required Java " + major
+                        + " and no matching runtime is installed; using it anyway");
+                return configured;
+            }
+            LogService.info("Configured Java " + runtime.version + " does not match required Java " + major
+                    + ", using " + match);
+            return match.path;
+        }
+        return new JavaRuntimeService().getJavaPath(major, component, status -> callback.onStatusUpdate(status),
+                token);
+    }
+
+    // Loggable form of a launch command: the access token is masked and very long arguments
+    // (an inline classpath on Java 8) are cut down
+    static String describeCommand(List<String> command) {
+        StringBuilder sb = new StringBuilder();
+        boolean secret = false;
+        for (String arg : command) {
+            if (sb.length() > 0)
+                sb.append(' ');
+            if (secret) {
+                sb.append("********");
+            } else if (arg.length() > MAX_LOGGED_ARG) {
+                sb.append(arg, 0, MAX_LOGGED_ARG).append("...(").append(arg.length()).append(" chars)");
+            } else {
+                sb.append(arg);
+            }
+            secret = arg.equals("--accessToken");
+        }
+        return sb.toString();
+    }
+
+    // Major version of the java actually launched; falls back to the one the version asked for
+    private int runtimeMajor(String javaPath, int requiredMajor) {
+        JavaRuntimeRegistry.JavaRuntime runtime = JavaRuntimeRegistry.getInstance().describe(javaPath);
+        return runtime != null && runtime.major > 0 ? runtime.major : requiredMajor;
+    }
+
+    // Folder holding the version JSON/jar (and everything else for modpacks)
+    public File getInstanceDir(VersionInfo version) {
         if ("modpack".equals(version.getType())) {
-            versionFolder = new File(gameDir + "/modpacks", version.getId());
-        } else {
-            versionFolder = new File(versionsDir, version.getId());
+            return new File(gameDir + "/modpacks", version.getId());
         }
+        return new File(versionsDir, version.getId());
+    }
+
+    // Directory the game runs in; vanilla versions share the launcher's game directory
+    public File getWorkingDir(VersionInfo version) {
+        return "modpack".equals(version.getType()) ? getInstanceDir(version) : new File(gameDir);
+    }
+
+    public boolean isVersionInstalled(VersionInfo version) {
+        File versionFolder = getInstanceDir(version);
         File versionJsonFile = new File(versionFolder, version.getId() + ".json");
         File clientJar = new File(versionFolder, version.getId() + ".jar");
 
@@ -367,31 +436,24 @@ public class GameLaunchService {
         return versionJsonFile.exists() && clientJar.exists();
     }
 
-    private boolean checkRules(JsonObject lib) {
-        if (!lib.has("rules"))
+    private boolean checkRules(VersionProfile.Library lib) {
+        if (lib.rules.isEmpty())
             return true;
-        JsonArray rules = lib.getAsJsonArray("rules");
         boolean allow = false;
-        for (JsonElement ruleElement : rules) {
-            JsonObject rule = ruleElement.getAsJsonObject();
-            String action = rule.get("action").getAsString();
-            if (rule.has("os")) {
-                String osName = rule.getAsJsonObject("os").get("name").getAsString();
-                if (osName.equals("windows")) {
-                    allow = action.equals("allow");
+        for (VersionProfile.Rule rule : lib.rules) {
+            if (rule.osName != null) {
+                if (rule.osName.equals("windows")) {
+                    allow = "allow".equals(rule.action);
                 }
             } else {
-                allow = action.equals("allow");
+                allow = "allow".equals(rule.action);
             }
         }
-        if (!allow) {
-            // LogService.debug("Skipping library due to rules: " + (lib.has("name") ?
-            // lib.get("name").getAsString() : "unknown"));
-        }
         return allow;
     }
 
-    private void downloadFile(String urlStr, File target) throws IOException {
+    private void downloadFile(String urlStr, File target, CancellationToken token) throws IOException {
+        token.throwIfCancelled();
         target.getParentFile().mkdirs();
         URL url = new URL(urlStr);
         java.net.HttpURLConnection conn = (java.net.HttpURLConnection) url.openConnection();
@@ -399,18 +461,37 @@ public class GameLaunchService {
                 "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
         conn.setInstanceFollowRedirects(true);
 
-        int responseCode = conn.getResponseCode();
-        if (responseCode != java.net.HttpURLConnection.HTTP_OK) {
-            throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + urlStr);
-        }
+        // Download into a .part file so a cancelled or failed transfer never looks installed
+        File partFile = new File(target.getParentFile(), target.getName() + ".part");
+        CancellationToken.Registration reg = token.onCancel(conn::disconnect);
+        try {
+            int responseCode = conn.getResponseCode();
+            if (responseCode != java.net.HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + urlStr);
+            }
 
-        try (BufferedInputStream in = new BufferedInputStream(conn.getInputStream());
-                FileOutputStream fileOutputStream = new FileOutputStream(target)) {
-            byte dataBuffer[] = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
-                fileOutputStream.write(dataBuffer, 0, bytesRead);
+            try (BufferedInputStream in = new BufferedInputStream(conn.getInputStream());
+                    FileOutputStream fileOutputStream = new FileOutputStream(partFile)) {
+                byte dataBuffer[] = new byte[8192];
+                int bytesRead;
+                while ((bytesRead = in.read(dataBuffer, 0, dataBuffer.length)) != -1) {
+                    token.throwIfCancelled();
+                    fileOutputStream.write(dataBuffer, 0, bytesRead);
+                }
+            }
+            token.throwIfCancelled();
+            java.nio.file.Files.move(partFile.toPath(), target.toPath(),
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            // Later launches check size + mtime against this record instead of trusting exists()
+            LocalStateStore.getInstance().recordValidated(target);
+        } catch (IOException | RuntimeException e) {
+            partFile.delete();
+            if (token.isCancelled()) {
+                throw new CancellationException("Download cancelled: " + urlStr);
             }
+            throw e;
+        } finally {
+            reg.close();
         }
     }
 
@@ -443,72 +524,85 @@ public class GameLaunchService {
         }
     }
 
-    private void downloadAssets(JsonObject assetIndex, LaunchCallback callback) throws IOException {
-        String id = assetIndex.get("id").getAsString();
-        String url = assetIndex.get("url").getAsString();
+    private AssetIndexService.AssetIndex downloadAssets(VersionProfile.AssetIndexRef assetIndex,
+            LaunchCallback callback, CancellationToken token) throws IOException {
+        String id = assetIndex.id;
+        String url = assetIndex.url;
         File indexesDir = new File(assetsDir, "indexes");
         indexesDir.mkdirs();
         File indexFile = new File(indexesDir, id + ".json");
 
         if (!indexFile.exists()) {
             LogService.info("Downloading asset index: " + id);
-            downloadFile(url, indexFile);
+            downloadFile(url, indexFile, token);
         }
 
-        JsonObject indexJson;
-        try (FileReader reader = new FileReader(indexFile)) {
-            indexJson = gson.fromJson(reader, JsonObject.class);
-        }
-
-        if (indexJson.has("objects")) {
-            JsonObject objects = indexJson.getAsJsonObject("objects");
-            File objectsDir = new File(assetsDir, "objects");
-            objectsDir.mkdirs();
-
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            int total = objects.size();
-            java.util.concurrent.atomic.AtomicInteger current = new java.util.concurrent.atomic.AtomicInteger(0);
+        AssetIndexService store = AssetIndexService.getInstance();
+        AssetIndexService.AssetIndex index = store.load(indexFile);
+        File objectsDir = new File(assetsDir, "objects");
+        objectsDir.mkdirs();
 
-            LogService.info("Checking " + total + " assets...");
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        int total = index.size();
+        // Objects verified by any earlier launch (of any version) only need to be listed, not stat-ed
+        int[] missing = store.missing(index, objectsDir);
+        java.util.concurrent.atomic.AtomicInteger current = new java.util.concurrent.atomic.AtomicInteger(
+                total - missing.length);
 
-            // Batch processing to avoid too many open connections
-            List<String> keys = new ArrayList<>(objects.keySet());
-            int batchSize = 50;
+        LogService.info("Checked " + total + " assets, " + missing.length + " to download");
 
-            for (int i = 0; i < keys.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, keys.size());
-                List<String> batch = keys.subList(i, end);
-
-                for (String key : batch) {
-                    JsonObject obj = objects.getAsJsonObject(key);
-                    String hash = obj.get("hash").getAsString();
-                    String prefix = hash.substring(0, 2);
+        // Batch processing to avoid too many open connections
+        int batchSize = 50;
+        try {
+            for (int i = 0; i < missing.length; i += batchSize) {
+                token.throwIfCancelled();
+                int end = Math.min(i + batchSize, missing.length);
+
+                for (int j = i; j < end; j++) {
+                    int object = missing[j];
+                    String hash = index.hash(object);
+                    String prefix = index.prefix(object);
                     File file = new File(objectsDir, prefix + "/" + hash);
 
-                    if (!file.exists()) {
-                        futures.add(CompletableFuture.runAsync(() -> {
-                            try {
-                                String downloadUrl = "https://resources.download.minecraft.net/" + prefix + "/" + hash;
-                                downloadFile(downloadUrl, file);
-                                int c = current.incrementAndGet();
-                                if (c % 10 == 0) {
-                                    callback.onStatusUpdate("Downloading assets (" + c + "/" + total + ")...");
-                                }
-                            } catch (IOException e) {
-                                LogService.error("Failed to download asset: " + key, e);
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        if (token.isCancelled())
+                            return;
+                        try {
+                            String downloadUrl = "https://resources.download.minecraft.net/" + prefix + "/" + hash;
+                            downloadFile(downloadUrl, file, token);
+                            store.markVerified(index, object);
+                            int c = current.incrementAndGet();
+                            if (c % 10 == 0) {
+                                callback.onStatusUpdate("Downloading assets (" + c + "/" + total + ")...");
                             }
-                        }));
-                    } else {
-                        current.incrementAndGet();
-                    }
+                        } catch (IOException e) {
+                            LogService.error("Failed to download asset: " + index.names[object], e);
+                        } catch (CancellationException e) {
+                            // Batch is being torn down
+                        }
+                    }));
                 }
 
-                // Wait for batch to complete
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+                // Wait for batch to complete; cancelling drops the tasks that have not started yet
+                List<CompletableFuture<Void>> batchFutures = new ArrayList<>(futures);
+                CancellationToken.Registration reg = token
+                        .onCancel(() -> batchFutures.forEach(f -> f.cancel(false)));
+                try {
+                    CompletableFuture.allOf(batchFutures.toArray(new CompletableFuture<?>[0])).join();
+                } catch (CancellationException | java.util.concurrent.CompletionException e) {
+                    token.throwIfCancelled();
+                    throw e;
+                } finally {
+                    reg.close();
+                }
                 futures.clear();
                 callback.onStatusUpdate("Downloading assets (" + current.get() + "/" + total + ")...");
             }
+        } finally {
+            // Keep what was verified even if the launch is cancelled halfway
+            store.flush();
         }
+        return index;
     }
 
     private String fetchBaseVersionUrl(String versionId) {
@@ -516,7 +610,7 @@ public class GameLaunchService {
             URL url = new URL("https://piston-meta.mojang.com/mc/game/version_manifest_v2.json");
             java.net.HttpURLConnection conn = (java.net.HttpURLConnection) url.openConnection();
             try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(conn.getInputStream()))) {
+                    new java.io.InputStreamReader(conn.getInputStream(), java.nio.charset.StandardCharsets.UTF_8))) {
                 JsonObject json = gson.fromJson(reader, JsonObject.class);
                 JsonArray versions = json.getAsJsonArray("versions");
                 for (JsonElement e : versions) {
@@ -0,0 +1,62 @@
+package com.launcher.services;
+
+import java.util.List;
+
+// Fixed-size ring of the most recent game output lines for one instance. Lines are addressed
+// by a monotonically increasing sequence number so viewers can tail it without copying it all.
+public class GameOutputBuffer {
+
+    public static class Line {
+        public final long sequence;
+        public final String text;
+        public final boolean error;
+
+        Line(long sequence, String text, boolean error) {
+            this.sequence = sequence;
+            this.text = text;
+            this.error = error;
+        }
+    }
+
+    private final String[] lines;
+    private final boolean[] errors;
+    private long next;
+
+    public GameOutputBuffer(int capacity) {
+        this.lines = new String[capacity];
+        this.errors = new boolean[capacity];
+    }
+
+    public synchronized void append(String line, boolean error) {
+        int slot = (int) (next % lines.length);
+        lines[slot] = line;
+        errors[slot] = error;
+        next++;
+    }
+
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    // Sequence number the next appended line will get
+    public synchronized long getNextSequence() {
+        return next;
+    }
+
+    // Oldest sequence number still held in the buffer
+    public synchronized long getFirstSequence() {
+        return Math.max(0, next - lines.length);
+    }
+
+    // Copies up to max lines starting at fromSequence (clamped to what is still buffered).
+    // Returns the sequence to continue from.
+    public synchronized long read(long fromSequence, int max, List<Line> out) {
+        long seq = Math.max(fromSequence, getFirstSequence());
+        long end = Math.min(next, seq + max);
+        for (; seq < end; seq++) {
+            int slot = (int) (seq % lines.length);
+            out.add(new Line(seq, lines[slot], errors[slot]));
+        }
+        return seq;
+    }
+}
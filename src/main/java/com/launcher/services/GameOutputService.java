@@ -0,0 +1,146 @@
+package com.launcher.services;
+
+import com.launcher.util.RollingFileChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Captures stdout/stderr of running game processes into a per-instance ring buffer and a
+// rolling file on disk, so output survives a windowless launcher and can be viewed in-app.
+public class GameOutputService {
+
+    private static final int BUFFER_LINES = 20000;
+    private static final long MAX_FILE_BYTES = 5L * 1024 * 1024;
+    private static final int MAX_ARCHIVES = 5;
+    private static final int READ_CHUNK = 16 * 1024;
+
+    private static GameOutputService instance;
+    private final Map<String, GameOutputBuffer> buffers = new ConcurrentHashMap<>();
+
+    private GameOutputService() {
+    }
+
+    public static synchronized GameOutputService getInstance() {
+        if (instance == null) {
+            instance = new GameOutputService();
+        }
+        return instance;
+    }
+
+    public GameOutputBuffer getBuffer(String instanceId) {
+        return buffers.computeIfAbsent(instanceId, id -> new GameOutputBuffer(BUFFER_LINES));
+    }
+
+    public boolean hasOutput(String instanceId) {
+        GameOutputBuffer buffer = buffers.get(instanceId);
+        return buffer != null && buffer.getNextSequence() > 0;
+    }
+
+    public void capture(String instanceId, Process process, File logDir) {
+        GameOutputBuffer buffer = getBuffer(instanceId);
+        buffer.append("---- " + instanceId + " started at "
+                + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + " ----", false);
+
+        RollingFileChannel file = null;
+        try {
+            file = new RollingFileChannel(new File(logDir, "game-output.log").toPath(), MAX_FILE_BYTES,
+                    MAX_ARCHIVES);
+        } catch (IOException e) {
+            LogService.error("Failed to open game output log in " + logDir.getAbsolutePath(), e);
+        }
+
+        Capture capture = new Capture(buffer, file);
+        startPump(capture, process.getInputStream(), false, instanceId + "-stdout");
+        startPump(capture, process.getErrorStream(), true, instanceId + "-stderr");
+    }
+
+    private void startPump(Capture capture, InputStream in, boolean error, String name) {
+        Thread t = new Thread(() -> capture.pump(in, error), "game-output-" + name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static class Capture {
+        private final GameOutputBuffer buffer;
+        private final RollingFileChannel file;
+        private final AtomicInteger openStreams = new AtomicInteger(2);
+        private final Charset charset = Charset.defaultCharset();
+
+        Capture(GameOutputBuffer buffer, RollingFileChannel file) {
+            this.buffer = buffer;
+            this.file = file;
+        }
+
+        // Reads into one reusable chunk; every complete line becomes a single String in the
+        // ring buffer and whole lines are written to disk per chunk rather than per line.
+        void pump(InputStream in, boolean error) {
+            byte[] chunk = new byte[READ_CHUNK];
+            int len = 0;
+            try (InputStream stream = in) {
+                int n;
+                while ((n = stream.read(chunk, len, chunk.length - len)) != -1) {
+                    int scanFrom = len;
+                    len += n;
+                    int lineStart = 0;
+                    for (int i = scanFrom; i < len; i++) {
+                        if (chunk[i] == '\n') {
+                            emitLine(chunk, lineStart, i, error);
+                            lineStart = i + 1;
+                        }
+                    }
+                    if (lineStart > 0) {
+                        writeToFile(chunk, 0, lineStart);
+                        System.arraycopy(chunk, lineStart, chunk, 0, len - lineStart);
+                        len -= lineStart;
+                    } else if (len == chunk.length) {
+                        // Line longer than the chunk: split it rather than growing the buffer
+                        emitLine(chunk, 0, len, error);
+                        writeToFile(chunk, 0, len);
+                        writeToFile(new byte[] { '\n' }, 0, 1);
+                        len = 0;
+                    }
+                }
+                if (len > 0) {
+                    emitLine(chunk, 0, len, error);
+                    writeToFile(chunk, 0, len);
+                }
+            } catch (IOException e) {
+                // Stream closes when the process dies
+            } finally {
+                if (openStreams.decrementAndGet() == 0 && file != null) {
+                    synchronized (this) {
+                        try {
+                            file.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            }
+        }
+
+        private void emitLine(byte[] chunk, int start, int end, boolean error) {
+            if (end > start && chunk[end - 1] == '\r') {
+                end--;
+            }
+            buffer.append(new String(chunk, start, end - start, charset), error);
+        }
+
+        private synchronized void writeToFile(byte[] bytes, int off, int len) {
+            if (file == null)
+                return;
+            try {
+                file.write(ByteBuffer.wrap(bytes, off, len));
+            } catch (IOException e) {
+                LogService.warn("Failed to write game output: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.launcher.services;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Opt-in heap sizing per instance. Launches on Java 9+ write a unified GC log into the instance's
+// launcher-logs folder; after exit the log is reduced to peak live set, pause totals and GC
+// frequency, and turned into an -Xms/-Xmx recommendation capped by physical memory.
+public class HeapAdvisorService {
+
+    public enum Mode {
+        OFF, RECOMMEND, APPLY
+    }
+
+    private static final String GC_LOG = "gc.log";
+    private static final int MIN_HEAP_MB = 1024;
+    private static final int STEP_MB = 256;
+    // Short sessions never reach steady state; their numbers would undersize the heap
+    private static final double MIN_UPTIME_SECONDS = 120;
+    private static final int MIN_COLLECTIONS = 3;
+    // [12.345s] GC(7) Pause Young (Normal) (G1 Evacuation Pause) 812M->301M(2048M) 9.512ms
+    private static final Pattern UPTIME = Pattern.compile("^\\[(\\d+[.,]\\d+)s\\]");
+    private static final Pattern HEAP = Pattern.compile("(\\d+)M(?:\\(\\d+%\\))?->(\\d+)M(?:\\(\\d+%\\))?(?:\\((\\d+)M\\))?");
+    private static final Pattern PAUSE = Pattern.compile(" Pause .* (\\d+[.,]\\d+)ms$");
+
+    private static HeapAdvisorService instance;
+
+    public static class GcStats {
+        public int collections;
+        public int pauses;
+        public double totalPauseMs;
+        public double maxPauseMs;
+        public long peakLiveMb;
+        public long peakCommittedMb;
+        public double uptimeSeconds;
+
+        public double collectionsPerMinute() {
+            return uptimeSeconds > 0 ? collections * 60 / uptimeSeconds : 0;
+        }
+
+        public double pauseFraction() {
+            return uptimeSeconds > 0 ? totalPauseMs / 1000 / uptimeSeconds : 0;
+        }
+    }
+
+    public static class Recommendation {
+        public final int xmsMb;
+        public final int xmxMb;
+        public final String reason;
+
+        Recommendation(int xmsMb, int xmxMb, String reason) {
+            this.xmsMb = xmsMb;
+            this.xmxMb = xmxMb;
+            this.reason = reason;
+        }
+    }
+
+    private HeapAdvisorService() {
+    }
+
+    public static synchronized HeapAdvisorService getInstance() {
+        if (instance == null) {
+            instance = new HeapAdvisorService();
+        }
+        return instance;
+    }
+
+    public Mode getMode() {
+        try {
+            return Mode.valueOf(SettingsService.getInstance().getHeapMode());
+        } catch (IllegalArgumentException e) {
+            return Mode.OFF;
+        }
+    }
+
+    // Leaving APPLY hands every instance back to the global slider
+    public void setMode(Mode mode) {
+        Mode previous = getMode();
+        SettingsService.getInstance().setHeapMode(mode.name());
+        if (previous == Mode.APPLY && mode != Mode.APPLY) {
+            int cleared = InstanceMetadataService.getInstance().clearHeaps();
+            if (cleared > 0) {
+                LogService.info("Cleared applied heap sizes of " + cleared + " instance(s)");
+            }
+        }
+    }
+
+    // -Xms/-Xmx for a launch: in APPLY mode a per-instance size wins over the global slider
+    public List<String> heapArgs(String instanceId, int globalRamMb) {
+        List<String> args = new ArrayList<>();
+        InstanceMetadataService.InstanceMetadata meta = appliedHeap(instanceId);
+        if (meta != null) {
+            if (meta.heapMinMb > 0) {
+                args.add("-Xms" + meta.heapMinMb + "M");
+            }
+            args.add("-Xmx" + meta.heapMaxMb + "M");
+        } else {
+            args.add("-Xmx" + globalRamMb + "M");
+        }
+        return args;
+    }
+
+    public int heapMaxMb(String instanceId, int globalRamMb) {
+        InstanceMetadataService.InstanceMetadata meta = appliedHeap(instanceId);
+        return meta != null ? meta.heapMaxMb : globalRamMb;
+    }
+
+    private InstanceMetadataService.InstanceMetadata appliedHeap(String instanceId) {
+        if (getMode() != Mode.APPLY)
+            return null;
+        InstanceMetadataService.InstanceMetadata meta = InstanceMetadataService.getInstance().getMetadata(instanceId);
+        return meta != null && meta.heapMaxMb > 0 ? meta : null;
+    }
+
+    // The log path is relative to the game's working directory: an absolute Windows path would put
+    // a drive-letter colon inside the -Xlog option, which uses ':' as its separator.
+    public List<String> gcLogArgs(File instanceDir, File workingDir, int javaMajor) {
+        List<String> args = new ArrayList<>();
+        if (getMode() == Mode.OFF || javaMajor < 9)
+            return args;
+        File logDir = new File(instanceDir, "launcher-logs");
+        logDir.mkdirs();
+        File log = new File(logDir, GC_LOG);
+        log.delete();
+        String relative = workingDir.toPath().toAbsolutePath().relativize(log.toPath().toAbsolutePath()).toString()
+                .replace('\\', '/');
+        args.add("-Xlog:gc:file=" + relative + ":uptime");
+        return args;
+    }
+
+    public GcStats analyze(File gcLog) throws IOException {
+        GcStats stats = new GcStats();
+        try (BufferedReader reader = Files.newBufferedReader(gcLog.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher uptime = UPTIME.matcher(line);
+                if (uptime.find()) {
+                    stats.uptimeSeconds = Math.max(stats.uptimeSeconds,
+                            Double.parseDouble(uptime.group(1).replace(',', '.')));
+                }
+                if (!line.contains(" GC("))
+                    continue;
+                Matcher heap = HEAP.matcher(line);
+                if (heap.find()) {
+                    stats.collections++;
+                    // Occupancy right after a collection approximates the live set
+                    stats.peakLiveMb = Math.max(stats.peakLiveMb, Long.parseLong(heap.group(2)));
+                    if (heap.group(3) != null) {
+                        stats.peakCommittedMb = Math.max(stats.peakCommittedMb, Long.parseLong(heap.group(3)));
+                    }
+                }
+                Matcher pause = PAUSE.matcher(line);
+                if (pause.find()) {
+                    double ms = Double.parseDouble(pause.group(1).replace(',', '.'));
+                    stats.pauses++;
+                    stats.totalPauseMs += ms;
+                    stats.maxPauseMs = Math.max(stats.maxPauseMs, ms);
+                }
+            }
+        }
+        return stats;
+    }
+
+    public Recommendation recommend(GcStats stats) {
+        if (stats.uptimeSeconds < MIN_UPTIME_SECONDS || stats.collections < MIN_COLLECTIONS)
+            return null;
+
+        // Headroom of 2.5x the live set keeps G1 out of back-to-back collections
+        double target = stats.peakLiveMb * 2.5;
+        String reason = "peak live set " + stats.peakLiveMb + " MB";
+        if (stats.collectionsPerMinute() > 30 || stats.pauseFraction() > 0.05) {
+            target *= 1.25;
+            reason += String.format(", %.0f GCs/min, %.1f%% time paused", stats.collectionsPerMinute(),
+                    stats.pauseFraction() * 100);
+        }
+        int xmx = clamp(roundUp(target));
+        int xms = Math.min(xmx, Math.max(MIN_HEAP_MB / 2, roundUp(stats.peakLiveMb * 1.5)));
+        return new Recommendation(xms, xmx, reason);
+    }
+
+    // Called once the game exits. Returns a one-line summary for the status bar, or null.
+    public String afterExit(String instanceId, String type, File instanceDir) {
+        Mode mode = getMode();
+        File log = new File(new File(instanceDir, "launcher-logs"), GC_LOG);
+        if (mode == Mode.OFF || !log.isFile())
+            return null;
+        try {
+            GcStats stats = analyze(log);
+            Recommendation rec = recommend(stats);
+            LogService.info(String.format("%s GC: %d collections, peak live %d MB, %.0f ms paused (max %.1f ms) over %.0f s",
+                    instanceId, stats.collections, stats.peakLiveMb, stats.totalPauseMs, stats.maxPauseMs,
+                    stats.uptimeSeconds));
+            if (rec == null)
+                return null;
+            InstanceMetadataService metadata = InstanceMetadataService.getInstance();
+            metadata.setRecommendedHeap(instanceId, type, rec.xmsMb, rec.xmxMb);
+            if (mode == Mode.APPLY) {
+                metadata.setHeap(instanceId, type, rec.xmsMb, rec.xmxMb);
+                return "Heap set to " + rec.xmsMb + "-" + rec.xmxMb + " MB (" + rec.reason + ")";
+            }
+            return "Recommended heap " + rec.xmsMb + "-" + rec.xmxMb + " MB (" + rec.reason + ")";
+        } catch (IOException e) {
+            LogService.warn("Failed to read GC log " + log + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private int roundUp(double mb) {
+        return (int) (Math.ceil(mb / STEP_MB) * STEP_MB);
+    }
+
+    // Never below 1 GB, never more than physical memory minus room for the OS and launcher
+    private int clamp(int mb) {
+        long physicalMb = physicalMemoryMb();
+        int cap = physicalMb > 0 ? (int) Math.max(MIN_HEAP_MB, Math.min(physicalMb * 3 / 4, physicalMb - 2048))
+                : Integer.MAX_VALUE;
+        return Math.max(MIN_HEAP_MB, Math.min(mb, cap / STEP_MB * STEP_MB));
+    }
+
+    public static long physicalMemoryMb() {
+        try {
+            return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                    .getTotalMemorySize() / (1024 * 1024);
+        } catch (ClassCastException | LinkageError e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.launcher.services;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.launcher.util.Constants;
+import com.launcher.util.FileLinker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Set;
+
+// Duplicates a modpack instance. Content that is only ever replaced, never edited in place (mod
+// jars, resource and shader packs, libraries, the client jar), is hard-linked or reflinked through
+// FileLinker; configs, saves and everything else are copied so the two instances can diverge.
+// The clone is built in a hidden staging folder and renamed into place when complete.
+public class InstanceCloneService {
+
+    // Whole trees of downloaded artifacts. Not natives/: extractNatives rewrites those files in
+    // place on every launch, which would write through a hard link into the source instance.
+    private static final Set<String> LINKED_DIRS = Set.of("libraries");
+    // Per-run state of the source, not part of the instance; natives are re-extracted at launch
+    private static final Set<String> SKIPPED_DIRS = Set.of("logs", "crash-reports", "launcher-logs", "natives");
+    // Packaged content anywhere (mods, resource/shader packs); loose files in mods/ such as
+    // TOML or JSON settings are copied, since tools do edit those
+    private static final Set<String> LINKED_EXTENSIONS = Set.of("jar", "zip", "litemod");
+
+    public static class Result {
+        public String id;
+        public int linked;
+        public int reflinked;
+        public int copied;
+        public long copiedBytes;
+        public long millis;
+    }
+
+    private static InstanceCloneService instance;
+    private final File modpacksDir = new File(Constants.GAME_DIR, "modpacks");
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private InstanceCloneService() {
+    }
+
+    public static synchronized InstanceCloneService getInstance() {
+        if (instance == null) {
+            instance = new InstanceCloneService();
+        }
+        return instance;
+    }
+
+    // Folder-safe id for a display name, unique among installed modpacks
+    public String newId(String name, String sourceId) {
+        String base = name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]+", "-").replaceAll("^[-.]+|-+$", "");
+        if (base.isEmpty()) {
+            base = sourceId + "-copy";
+        }
+        String id = base;
+        for (int n = 2; new File(modpacksDir, id).exists() || new File(modpacksDir, ".clone-" + id).exists(); n++) {
+            id = base + "-" + n;
+        }
+        return id;
+    }
+
+    public Result cloneInstance(String sourceId, String newId, String newName) throws IOException {
+        long start = System.currentTimeMillis();
+        File source = new File(modpacksDir, sourceId);
+        File target = new File(modpacksDir, newId);
+        if (!new File(source, sourceId + ".json").isFile())
+            throw new IOException("Not an installed modpack: " + sourceId);
+        if (target.exists())
+            throw new IOException("An instance named " + newId + " already exists");
+
+        // Not listed as an instance until renamed: the folder and json names don't match
+        File staging = new File(modpacksDir, ".clone-" + newId);
+        Result result = new Result();
+        result.id = newId;
+        try {
+            copyTree(source.toPath(), staging.toPath(), sourceId, newId, result);
+            Files.move(staging.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            InstanceTrashService.getInstance().trash(staging);
+            throw e;
+        }
+
+        // Same name and JVM setup as the source, fresh play statistics
+        InstanceMetadataService metadata = InstanceMetadataService.getInstance();
+        InstanceMetadataService.InstanceMetadata meta = metadata.getMetadata(sourceId);
+        metadata.setInstanceName(newId, newName, "modpack");
+        if (meta != null) {
+            metadata.setJvmOptions(newId, "modpack", meta.jvmProfile, meta.extraJvmArgs);
+            if (meta.heapMaxMb > 0) {
+                metadata.setHeap(newId, "modpack", meta.heapMinMb, meta.heapMaxMb);
+            }
+        }
+
+        result.millis = System.currentTimeMillis() - start;
+        LogService.info(String.format("Cloned %s to %s in %d ms: %d hard-linked, %d reflinked, %d copied (%d KB)",
+                sourceId, newId, result.millis, result.linked, result.reflinked, result.copied,
+                result.copiedBytes / 1024));
+        return result;
+    }
+
+    private void copyTree(Path from, Path to, String sourceId, String newId, Result result) throws IOException {
+        FileLinker linker = new FileLinker();
+        Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path rel = from.relativize(dir);
+                if (rel.getNameCount() == 1 && SKIPPED_DIRS.contains(rel.toString()))
+                    return FileVisitResult.SKIP_SUBTREE;
+                Files.createDirectories(to.resolve(rel.toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path rel = from.relativize(file);
+                String name = rel.getFileName().toString();
+                boolean topLevel = rel.getNameCount() == 1;
+                if (topLevel && name.equals(sourceId + ".json")) {
+                    writeRenamedProfile(file, to.resolve(newId + ".json"), newId);
+                    result.copied++;
+                    return FileVisitResult.CONTINUE;
+                }
+                Path dest = to.resolve(topLevel && name.equals(sourceId + ".jar") ? newId + ".jar" : rel.toString());
+                if (attrs.isRegularFile() && isImmutable(rel)) {
+                    FileLinker.Method method = linker.link(file.toFile(), dest.toFile());
+                    if (method == FileLinker.Method.HARD_LINK) {
+                        result.linked++;
+                    } else if (method == FileLinker.Method.REFLINK) {
+                        result.reflinked++;
+                    } else {
+                        result.copied++;
+                        result.copiedBytes += attrs.size();
+                    }
+                } else {
+                    Files.copy(file, dest, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                    result.copied++;
+                    result.copiedBytes += attrs.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isImmutable(Path rel) {
+        if (rel.getNameCount() > 1 && LINKED_DIRS.contains(rel.getName(0).toString()))
+            return true;
+        String name = rel.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && LINKED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    // The version json names its own id; the launcher expects it to match the folder
+    private void writeRenamedProfile(Path from, Path to, String newId) throws IOException {
+        JsonObject json;
+        try (Reader reader = Files.newBufferedReader(from, StandardCharsets.UTF_8)) {
+            json = gson.fromJson(reader, JsonObject.class);
+        } catch (RuntimeException e) {
+            throw new IOException("Unreadable instance profile " + from.getFileName() + ": " + e.getMessage(), e);
+        }
+        json.addProperty("id", newId);
+        Files.writeString(to, gson.toJson(json), StandardCharsets.UTF_8);
+    }
+}
@@ -1,39 +1,91 @@
 package com.launcher.services;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonObject;
 import com.launcher.util.Constants;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+// Metadata lives in a snapshot (the local state store's instances section) plus an append-only journal of mutations
+// (instances.journal). Each change costs one small append; the journal is replayed at startup
+// and folded back into the snapshot once it grows past COMPACT_THRESHOLD entries.
 public class InstanceMetadataService {
+    private static final int COMPACT_THRESHOLD = 200;
+
     private static InstanceMetadataService instance;
     private final Gson gson = new Gson();
-    private final File metadataFile = new File(Constants.GAME_DIR + "/instances.json");
-    private Map<String, InstanceMetadata> metadata = new HashMap<>();
+    private final LocalStateStore store = LocalStateStore.getInstance();
+    private final File journalFile = new File(Constants.GAME_DIR + "/instances.journal");
+    private final Map<String, InstanceMetadata> metadata = new ConcurrentHashMap<>();
+    private final Object journalLock = new Object();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "metadata-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+    private int journalEntries;
+    private boolean compactionQueued;
 
+    // Entries are treated as immutable once published; updates replace the whole record
     public static class InstanceMetadata {
         public String customName;
         public String versionId;
         public String type;
+        public long lastPlayed;
+        public long totalPlaytimeMs;
+        public long diskSizeBytes;
+        public int launchCount;
+        // Applied per-instance heap; 0 means the global RAM setting
+        public int heapMinMb;
+        public int heapMaxMb;
+        public int recommendedXmsMb;
+        public int recommendedXmxMb;
+        // JvmProfileService.Preset name, or null for the global profile
+        public String jvmProfile;
+        public String extraJvmArgs;
 
         public InstanceMetadata(String customName, String versionId, String type) {
             this.customName = customName;
             this.versionId = versionId;
             this.type = type;
         }
+
+        InstanceMetadata copy() {
+            InstanceMetadata c = new InstanceMetadata(customName, versionId, type);
+            c.lastPlayed = lastPlayed;
+            c.totalPlaytimeMs = totalPlaytimeMs;
+            c.diskSizeBytes = diskSizeBytes;
+            c.launchCount = launchCount;
+            c.heapMinMb = heapMinMb;
+            c.heapMaxMb = heapMaxMb;
+            c.recommendedXmsMb = recommendedXmsMb;
+            c.recommendedXmxMb = recommendedXmxMb;
+            c.jvmProfile = jvmProfile;
+            c.extraJvmArgs = extraJvmArgs;
+            return c;
+        }
+    }
+
+    private interface Mutation {
+        void apply(InstanceMetadata meta);
     }
 
     private InstanceMetadataService() {
         load();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::compact, "metadata-shutdown"));
     }
 
-    public static InstanceMetadataService getInstance() {
+    public static synchronized InstanceMetadataService getInstance() {
         if (instance == null) {
             instance = new InstanceMetadataService();
         }
@@ -41,35 +93,104 @@ public class InstanceMetadataService {
     }
 
     private void load() {
-        if (metadataFile.exists()) {
-            try (FileReader reader = new FileReader(metadataFile)) {
-                Type type = new TypeToken<Map<String, InstanceMetadata>>() {
-                }.getType();
-                metadata = gson.fromJson(reader, type);
-                if (metadata == null) {
-                    metadata = new HashMap<>();
+        Map<String, InstanceMetadata> saved = store.getJson(LocalStateStore.INSTANCES,
+                LocalStateStore.mapOf(String.class, InstanceMetadata.class));
+        if (saved != null) {
+            metadata.putAll(saved);
+        }
+        replayJournal();
+    }
+
+    private void replayJournal() {
+        if (!journalFile.exists())
+            return;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                try {
+                    JsonObject record = gson.fromJson(line, JsonObject.class);
+                    String id = record.get("id").getAsString();
+                    if ("remove".equals(record.get("op").getAsString())) {
+                        metadata.remove(id);
+                    } else {
+                        metadata.put(id, gson.fromJson(record.get("meta"), InstanceMetadata.class));
+                    }
+                    journalEntries++;
+                } catch (Exception e) {
+                    // A torn last line from a crash mid-append; everything before it is intact
+                    LogService.warn("Skipping unreadable metadata journal entry");
                 }
-            } catch (Exception e) {
-                LogService.error("Failed to load instance metadata", e);
-                metadata = new HashMap<>();
+            }
+        } catch (IOException e) {
+            LogService.error("Failed to replay instance metadata journal", e);
+        }
+        if (journalEntries > 0) {
+            LogService.info("Replayed " + journalEntries + " instance metadata changes");
+        }
+    }
+
+    private void append(String op, String id, InstanceMetadata meta) {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", op);
+        record.addProperty("id", id);
+        if (meta != null) {
+            record.add("meta", gson.toJsonTree(meta));
+        }
+        byte[] bytes = (gson.toJson(record) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        synchronized (journalLock) {
+            try {
+                journalFile.getParentFile().mkdirs();
+                Files.write(journalFile.toPath(), bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                journalEntries++;
+            } catch (IOException e) {
+                LogService.error("Failed to append instance metadata change", e);
+            }
+            if (journalEntries >= COMPACT_THRESHOLD && !compactionQueued) {
+                compactionQueued = true;
+                compactor.execute(this::compact);
             }
         }
     }
 
-    private void save() {
-        try {
-            metadataFile.getParentFile().mkdirs();
-            try (FileWriter writer = new FileWriter(metadataFile)) {
-                gson.toJson(metadata, writer);
+    // Folds the journal into a fresh snapshot and truncates it. The snapshot must be durable
+    // before the journal goes, so the store is flushed synchronously here.
+    public void compact() {
+        synchronized (journalLock) {
+            compactionQueued = false;
+            if (journalEntries == 0)
+                return;
+            store.putJson(LocalStateStore.INSTANCES, new HashMap<>(metadata));
+            if (!store.flush())
+                return;
+            try {
+                Files.deleteIfExists(journalFile.toPath());
+                journalEntries = 0;
+            } catch (IOException e) {
+                LogService.error("Failed to truncate instance metadata journal", e);
             }
-        } catch (Exception e) {
-            LogService.error("Failed to save instance metadata", e);
+        }
+    }
+
+    // Applied and journaled under one lock, so the journal order is the order the changes happened
+    private void update(String versionId, String type, Mutation mutation) {
+        synchronized (journalLock) {
+            InstanceMetadata updated = metadata.compute(versionId, (id, current) -> {
+                InstanceMetadata next = current != null ? current.copy() : new InstanceMetadata(id, id, type);
+                mutation.apply(next);
+                return next;
+            });
+            append("put", versionId, updated);
         }
     }
 
     public void setInstanceName(String versionId, String customName, String type) {
-        metadata.put(versionId, new InstanceMetadata(customName, versionId, type));
-        save();
+        update(versionId, type, meta -> {
+            meta.customName = customName;
+            meta.type = type;
+        });
     }
 
     public String getInstanceName(String versionId) {
@@ -77,9 +198,64 @@ public class InstanceMetadataService {
         return meta != null ? meta.customName : versionId;
     }
 
+    public InstanceMetadata getMetadata(String versionId) {
+        return metadata.get(versionId);
+    }
+
+    public void recordLaunch(String versionId, String type) {
+        update(versionId, type, meta -> {
+            meta.launchCount++;
+            meta.lastPlayed = System.currentTimeMillis();
+        });
+    }
+
+    public void recordPlaytime(String versionId, String type, long playtimeMs) {
+        update(versionId, type, meta -> meta.totalPlaytimeMs += playtimeMs);
+    }
+
+    public void setDiskSize(String versionId, String type, long bytes) {
+        update(versionId, type, meta -> meta.diskSizeBytes = bytes);
+    }
+
+    public void setHeap(String versionId, String type, int minMb, int maxMb) {
+        update(versionId, type, meta -> {
+            meta.heapMinMb = minMb;
+            meta.heapMaxMb = maxMb;
+        });
+    }
+
+    // Drops every applied heap size; returns how many instances had one
+    public int clearHeaps() {
+        int cleared = 0;
+        for (Map.Entry<String, InstanceMetadata> e : new HashMap<>(metadata).entrySet()) {
+            if (e.getValue().heapMaxMb > 0 || e.getValue().heapMinMb > 0) {
+                setHeap(e.getKey(), e.getValue().type, 0, 0);
+                cleared++;
+            }
+        }
+        return cleared;
+    }
+
+    public void setRecommendedHeap(String versionId, String type, int xmsMb, int xmxMb) {
+        update(versionId, type, meta -> {
+            meta.recommendedXmsMb = xmsMb;
+            meta.recommendedXmxMb = xmxMb;
+        });
+    }
+
+    public void setJvmOptions(String versionId, String type, String jvmProfile, String extraJvmArgs) {
+        update(versionId, type, meta -> {
+            meta.jvmProfile = jvmProfile;
+            meta.extraJvmArgs = extraJvmArgs;
+        });
+    }
+
     public void removeInstance(String versionId) {
-        metadata.remove(versionId);
-        save();
+        synchronized (journalLock) {
+            if (metadata.remove(versionId) != null) {
+                append("remove", versionId, null);
+            }
+        }
     }
 
     public boolean hasCustomName(String versionId) {
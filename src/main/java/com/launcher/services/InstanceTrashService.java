@@ -0,0 +1,141 @@
+package com.launcher.services;
+
+import com.launcher.util.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Deleting an instance is a rename into GAME_DIR/.trash, which is instant and atomic; the files
+// are then removed by low-priority workers. Whatever is still in the trash at startup (the
+// launcher closed mid-delete) is picked up again by resumePending().
+public class InstanceTrashService {
+
+    private static final int FILES_PER_TASK = 256;
+
+    private static InstanceTrashService instance;
+    private final File trashDir = new File(Constants.GAME_DIR, ".trash");
+    private final Set<String> purging = ConcurrentHashMap.newKeySet();
+    private final ExecutorService workers = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), r -> {
+                Thread t = new Thread(r, "instance-trash");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+    // Walks each trashed folder and waits on its chunks; kept off the worker pool so it can't starve it
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "instance-trash-walk");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private InstanceTrashService() {
+    }
+
+    public static synchronized InstanceTrashService getInstance() {
+        if (instance == null) {
+            instance = new InstanceTrashService();
+        }
+        return instance;
+    }
+
+    // Moves dir out of the way and deletes it in the background. Fails (leaving dir untouched)
+    // if it cannot be renamed, e.g. while the game still holds files open on Windows.
+    public void trash(File dir) throws IOException {
+        if (!dir.exists())
+            return;
+        trashDir.mkdirs();
+        File target = new File(trashDir, dir.getName() + "-" + System.currentTimeMillis());
+        Files.move(dir.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        LogService.info("Moved " + dir.getName() + " to trash");
+        purge(target);
+    }
+
+    // Startup hook for deletions a previous session did not finish
+    public void resumePending() {
+        File[] pending = trashDir.listFiles();
+        if (pending == null)
+            return;
+        for (File dir : pending) {
+            LogService.info("Resuming deletion of " + dir.getName());
+            purge(dir);
+        }
+    }
+
+    private void purge(File dir) {
+        if (!purging.add(dir.getAbsolutePath()))
+            return;
+        CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            List<Path> files = new ArrayList<>();
+            List<Path> dirs = new ArrayList<>();
+            try {
+                Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        files.add(file);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path d, IOException e) {
+                        dirs.add(d);
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                LogService.warn("Could not list trashed " + dir.getName() + ": " + e.getMessage());
+            }
+
+            // Files in parallel chunks, then directories deepest first
+            List<CompletableFuture<Void>> chunks = new ArrayList<>();
+            for (int i = 0; i < files.size(); i += FILES_PER_TASK) {
+                List<Path> chunk = files.subList(i, Math.min(i + FILES_PER_TASK, files.size()));
+                chunks.add(CompletableFuture.runAsync(() -> chunk.forEach(InstanceTrashService::delete), workers));
+            }
+            CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).join();
+            dirs.forEach(InstanceTrashService::delete);
+
+            if (dir.exists()) {
+                // Left for the next startup to retry
+                LogService.warn("Could not fully delete " + dir.getName() + "; will retry on next start");
+            } else {
+                LogService.info("Deleted " + dir.getName() + " (" + files.size() + " files) in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+            purging.remove(dir.getAbsolutePath());
+        }, coordinator);
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (AccessDeniedException e) {
+            // Read-only files on Windows
+            if (path.toFile().setWritable(true)) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                    // Retried on next start
+                }
+            }
+        } catch (IOException e) {
+            // Retried on next start
+        }
+    }
+}
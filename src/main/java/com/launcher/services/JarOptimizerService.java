@@ -0,0 +1,364 @@
+package com.launcher.services;
+
+import com.launcher.util.Constants;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+// Opt-in rewrite of classpath jars into STORED (uncompressed) form so class loading skips
+// inflation. Copies live in a cache named by the original's SHA-1; the originals are never touched,
+// so library hash checks keep working against them. Entry order, names, bytes, times and extras are
+// preserved, which keeps jar signatures valid (they sign entry content, not compressed bytes).
+public class JarOptimizerService {
+
+    public enum Mode {
+        OFF, ON, BENCHMARK
+    }
+
+    // Lines that show the client reached its main menu setup
+    private static final String[] STARTUP_MARKERS = { "Sound engine started", "OpenAL initialized",
+            "textures-atlas" };
+    private static final long STARTUP_TIMEOUT_MS = 5 * 60_000;
+    private static final int BENCH_SAMPLES = 5;
+
+    private static class Entry {
+        long size;
+        long modified;
+        String sha1;
+        // -1 when a rewrite would gain nothing (already stored); the original is used
+        long storedSize;
+    }
+
+    private static class State {
+        Map<String, Entry> jars = new HashMap<>();
+        // Instances whose optimized launch failed; they go back to the originals
+        Set<String> disabled = new HashSet<>();
+        Map<String, Bench> bench = new HashMap<>();
+    }
+
+    private static class Bench {
+        List<Long> stored = new ArrayList<>();
+        List<Long> original = new ArrayList<>();
+        boolean nextStored = true;
+    }
+
+    public static class Plan {
+        public final List<String> classpath;
+        public final boolean optimized;
+        public final int substituted;
+
+        Plan(List<String> classpath, boolean optimized, int substituted) {
+            this.classpath = classpath;
+            this.optimized = optimized;
+            this.substituted = substituted;
+        }
+    }
+
+    private static JarOptimizerService instance;
+    private final File cacheDir = new File(Constants.GAME_DIR, "cache/stored-jars");
+    private final State state;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    // One low-priority writer: this is a background nicety and must not compete with a download
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "jar-optimizer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private JarOptimizerService() {
+        State saved = LocalStateStore.getInstance().getJson(LocalStateStore.STORED_JARS, State.class);
+        state = saved != null ? saved : new State();
+    }
+
+    public static synchronized JarOptimizerService getInstance() {
+        if (instance == null) {
+            instance = new JarOptimizerService();
+        }
+        return instance;
+    }
+
+    public Mode getMode() {
+        try {
+            return Mode.valueOf(SettingsService.getInstance().getStoredJarsMode());
+        } catch (IllegalArgumentException e) {
+            return Mode.OFF;
+        }
+    }
+
+    // Classpath for a launch. Jars without an up-to-date stored copy keep their original path and
+    // are rewritten in the background for the next launch, so this never delays the game.
+    public synchronized Plan plan(String instanceId, List<String> classpath) {
+        Mode mode = getMode();
+        if (mode == Mode.OFF || state.disabled.contains(instanceId))
+            return new Plan(classpath, false, 0);
+        if (mode == Mode.BENCHMARK) {
+            // Alternate so both variants collect samples under similar conditions
+            Bench bench = state.bench.computeIfAbsent(instanceId, id -> new Bench());
+            boolean stored = bench.nextStored;
+            bench.nextStored = !stored;
+            save();
+            if (!stored)
+                return new Plan(classpath, false, 0);
+        }
+
+        List<String> result = new ArrayList<>(classpath.size());
+        int substituted = 0;
+        for (String path : classpath) {
+            File original = new File(path);
+            File stored = storedCopy(original);
+            if (stored != null) {
+                result.add(stored.getAbsolutePath());
+                substituted++;
+            } else {
+                result.add(path);
+                if (!isSettled(original) && original.isFile() && queued.add(original.getAbsolutePath())) {
+                    writer.execute(() -> {
+                        try {
+                            rewrite(original);
+                        } finally {
+                            queued.remove(original.getAbsolutePath());
+                        }
+                    });
+                }
+            }
+        }
+        return new Plan(result, substituted > 0, substituted);
+    }
+
+    // Falls back to the originals if the optimized game dies, and records startup time in
+    // benchmark mode. Startup is measured from spawn to the first marker line in the output.
+    public void watch(String instanceId, Process process, Plan plan) {
+        if (plan.optimized) {
+            process.onExit().thenRun(() -> {
+                if (process.exitValue() != 0) {
+                    LogService.warn(instanceId + " exited with " + process.exitValue()
+                            + " on stored jars; using the original jars from now on");
+                    synchronized (this) {
+                        state.disabled.add(instanceId);
+                        save();
+                    }
+                }
+            });
+        }
+        if (getMode() != Mode.BENCHMARK)
+            return;
+
+        long start = System.currentTimeMillis();
+        GameOutputBuffer buffer = GameOutputService.getInstance().getBuffer(instanceId);
+        long from = buffer.getNextSequence();
+        Thread t = new Thread(() -> {
+            List<GameOutputBuffer.Line> lines = new ArrayList<>();
+            long next = from;
+            while (System.currentTimeMillis() - start < STARTUP_TIMEOUT_MS) {
+                lines.clear();
+                next = buffer.read(next, 1000, lines);
+                for (GameOutputBuffer.Line line : lines) {
+                    for (String marker : STARTUP_MARKERS) {
+                        if (line.text.contains(marker)) {
+                            recordStartup(instanceId, plan.optimized, System.currentTimeMillis() - start);
+                            return;
+                        }
+                    }
+                }
+                if (!process.isAlive() && lines.isEmpty())
+                    return;
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "jar-benchmark-" + instanceId);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // Re-selecting the mode gives instances that fell back another try
+    public synchronized void resetFallbacks() {
+        if (!state.disabled.isEmpty()) {
+            state.disabled.clear();
+            save();
+        }
+    }
+
+    // File names in the cache that still back one of the given original jars
+    public synchronized Set<String> copiesFor(Set<String> originals) {
+        Set<String> names = new HashSet<>();
+        for (Map.Entry<String, Entry> e : state.jars.entrySet()) {
+            if (e.getValue().storedSize >= 0 && originals.contains(e.getKey())) {
+                names.add(e.getValue().sha1 + ".jar");
+            }
+        }
+        return names;
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    private synchronized void recordStartup(String instanceId, boolean stored, long millis) {
+        Bench bench = state.bench.computeIfAbsent(instanceId, id -> new Bench());
+        List<Long> samples = stored ? bench.stored : bench.original;
+        samples.add(millis);
+        if (samples.size() > BENCH_SAMPLES) {
+            samples.remove(0);
+        }
+        save();
+        LogService.info(String.format("%s startup %d ms with %s jars (median stored %s, original %s)", instanceId,
+                millis, stored ? "stored" : "original", median(bench.stored), median(bench.original)));
+    }
+
+    private static String median(List<Long> samples) {
+        if (samples.isEmpty())
+            return "n/a";
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2) + " ms (" + sorted.size() + ")";
+    }
+
+    private synchronized File storedCopy(File original) {
+        Entry entry = state.jars.get(original.getAbsolutePath());
+        if (entry == null || entry.storedSize < 0 || entry.size != original.length()
+                || entry.modified != original.lastModified())
+            return null;
+        File copy = new File(cacheDir, entry.sha1 + ".jar");
+        if (copy.length() != entry.storedSize) {
+            // Damaged or cleaned up cache: forget it, the original is used and re-queued
+            state.jars.remove(original.getAbsolutePath());
+            copy.delete();
+            save();
+            return null;
+        }
+        return copy;
+    }
+
+    // Known to gain nothing from a rewrite, and unchanged since that was decided
+    private synchronized boolean isSettled(File original) {
+        Entry entry = state.jars.get(original.getAbsolutePath());
+        return entry != null && entry.storedSize < 0 && entry.size == original.length()
+                && entry.modified == original.lastModified();
+    }
+
+    private void rewrite(File original) {
+        long size = original.length();
+        long modified = original.lastModified();
+        try {
+            String sha1 = sha1(original);
+            File copy = new File(cacheDir, sha1 + ".jar");
+            long storedSize;
+            if (copy.isFile()) {
+                // Same content already rewritten for another path (or instance)
+                storedSize = copy.length();
+            } else {
+                storedSize = writeStored(original, copy);
+            }
+            Entry entry = new Entry();
+            entry.size = size;
+            entry.modified = modified;
+            entry.sha1 = sha1;
+            entry.storedSize = storedSize;
+            synchronized (this) {
+                state.jars.put(original.getAbsolutePath(), entry);
+                save();
+            }
+        } catch (Exception e) {
+            LogService.warn("Could not rewrite " + original.getName() + " uncompressed: " + e.getMessage());
+        }
+    }
+
+    // Returns the size of the written copy, or -1 if the jar has nothing compressed worth undoing
+    private long writeStored(File original, File copy) throws IOException {
+        cacheDir.mkdirs();
+        File tmp = new File(copy.getPath() + ".tmp");
+        int entries = 0;
+        boolean anyDeflated = false;
+        try (ZipFile zip = new ZipFile(original);
+                ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tmp))) {
+            out.setMethod(ZipOutputStream.STORED);
+            if (zip.getComment() != null) {
+                out.setComment(zip.getComment());
+            }
+            byte[] buffer = new byte[64 * 1024];
+            Enumeration<? extends ZipEntry> all = zip.entries();
+            while (all.hasMoreElements()) {
+                ZipEntry source = all.nextElement();
+                anyDeflated |= source.getMethod() == ZipEntry.DEFLATED && source.getSize() > 0;
+                // Copy keeps name, time, extra and comment; sizes and CRC come from the central directory
+                ZipEntry target = new ZipEntry(source);
+                target.setMethod(ZipEntry.STORED);
+                target.setCompressedSize(source.getSize());
+                out.putNextEntry(target);
+                try (InputStream in = zip.getInputStream(source)) {
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        out.write(buffer, 0, n);
+                    }
+                }
+                out.closeEntry();
+                entries++;
+            }
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+
+        if (!anyDeflated) {
+            tmp.delete();
+            return -1;
+        }
+        // Re-open the copy before trusting it with a launch
+        try (ZipFile check = new ZipFile(tmp)) {
+            if (check.size() != entries)
+                throw new IOException("entry count mismatch after rewrite");
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        LogService.debug("Stored " + original.getName() + ": " + original.length() / 1024 + " KB -> "
+                + copy.length() / 1024 + " KB");
+        return copy.length();
+    }
+
+    private static String sha1(File file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private void save() {
+        LocalStateStore.getInstance().putJson(LocalStateStore.STORED_JARS, state);
+    }
+}
@@ -0,0 +1,363 @@
+package com.launcher.services;
+
+import com.launcher.util.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Known Java runtimes keyed by executable path. Probe results are persisted in the local state
+// store together with the executable's mtime, so a rescan only probes new or changed installs
+// and choosing a runtime for a launch is a lookup in memory.
+public class JavaRuntimeRegistry {
+
+    public static final boolean WINDOWS = System.getProperty("os.name").toLowerCase().contains("win");
+    public static final String JAVA_EXECUTABLE = WINDOWS ? "java.exe" : "java";
+    private static final long PROBE_TIMEOUT_SECONDS = 10;
+
+    private static JavaRuntimeRegistry instance;
+    private final Map<String, JavaRuntime> runtimes = new ConcurrentHashMap<>();
+    private final String runtimesDir = Constants.RUNTIMES_DIR;
+    private final ExecutorService probePool = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())), r -> {
+                Thread t = new Thread(r, "java-probe");
+                t.setDaemon(true);
+                return t;
+            });
+    private volatile CompletableFuture<Collection<JavaRuntime>> scan;
+
+    public static class JavaRuntime {
+        public String path;
+        public String home;
+        public String version;
+        public int major;
+        public String arch;
+        public long modified;
+
+        public boolean matchesHostArch() {
+            return hostArch().equals(arch);
+        }
+
+        @Override
+        public String toString() {
+            return "Java " + version + " (" + arch + ") at " + home;
+        }
+    }
+
+    private JavaRuntimeRegistry() {
+        Map<String, JavaRuntime> cached = LocalStateStore.getInstance().getJson(LocalStateStore.RUNTIMES,
+                LocalStateStore.mapOf(String.class, JavaRuntime.class));
+        if (cached != null) {
+            runtimes.putAll(cached);
+        }
+    }
+
+    public static synchronized JavaRuntimeRegistry getInstance() {
+        if (instance == null) {
+            instance = new JavaRuntimeRegistry();
+        }
+        return instance;
+    }
+
+    // Starts a scan unless one already ran this session.
+    public synchronized CompletableFuture<Collection<JavaRuntime>> scanAsync() {
+        if (scan == null) {
+            scan = rescan();
+        }
+        return scan;
+    }
+
+    public synchronized CompletableFuture<Collection<JavaRuntime>> rescan() {
+        long start = System.currentTimeMillis();
+        scan = CompletableFuture.supplyAsync(this::collectCandidates, probePool).thenCompose(executables -> {
+            List<CompletableFuture<JavaRuntime>> probes = new ArrayList<>();
+            for (Path exe : executables) {
+                probes.add(CompletableFuture.supplyAsync(() -> lookupOrProbe(exe), probePool));
+            }
+            return CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                Map<String, JavaRuntime> found = new HashMap<>();
+                for (CompletableFuture<JavaRuntime> probe : probes) {
+                    JavaRuntime runtime = probe.join();
+                    if (runtime != null) {
+                        found.put(runtime.path, runtime);
+                    }
+                }
+                runtimes.keySet().retainAll(found.keySet());
+                runtimes.putAll(found);
+                LocalStateStore.getInstance().putJson(LocalStateStore.RUNTIMES, new HashMap<>(runtimes));
+                LogService.info("Found " + found.size() + " Java runtimes in "
+                        + (System.currentTimeMillis() - start) + " ms");
+                return runtimes.values();
+            });
+        });
+        return scan;
+    }
+
+    public Collection<JavaRuntime> getRuntimes() {
+        return runtimes.values();
+    }
+
+    // Best runtime of exactly this major version: host architecture first, then newest.
+    public JavaRuntime find(int major) {
+        return runtimes.values().stream()
+                .filter(r -> r.major == major && new File(r.path).isFile() && isFinishedInstall(r.path))
+                .max(Comparator.comparing(JavaRuntime::matchesHostArch)
+                        .thenComparing(r -> r.version, JavaRuntimeRegistry::compareVersions))
+                .orElse(null);
+    }
+
+    // Like find(), but runs the first scan of the session if the cached map has no match.
+    public JavaRuntime findOrScan(int major) {
+        JavaRuntime runtime = find(major);
+        if (runtime == null && scan == null) {
+            scanAsync().join();
+            runtime = find(major);
+        }
+        return runtime;
+    }
+
+    // Probes (or reuses the cached probe of) a single executable, e.g. a user-configured path.
+    public JavaRuntime describe(String javaPath) {
+        Path exe = Paths.get(javaPath);
+        if (!Files.isRegularFile(exe))
+            return null;
+        JavaRuntime runtime = lookupOrProbe(exe);
+        if (runtime != null && runtimes.put(runtime.path, runtime) == null) {
+            LocalStateStore.getInstance().putJson(LocalStateStore.RUNTIMES, new HashMap<>(runtimes));
+        }
+        return runtime;
+    }
+
+    // Cached probes may predate the runtime.json check: a path inside runtimes/ only counts once
+    // its install finished
+    private boolean isFinishedInstall(String javaPath) {
+        Path root = Paths.get(runtimesDir).toAbsolutePath().normalize();
+        Path exe = Paths.get(javaPath).toAbsolutePath().normalize();
+        if (!exe.startsWith(root) || exe.getNameCount() <= root.getNameCount())
+            return true;
+        return Files.isRegularFile(root.resolve(exe.getName(root.getNameCount())).resolve("runtime.json"));
+    }
+
+    private Set<Path> collectCandidates() {
+        List<Path> homes = new ArrayList<>();
+        String javaHome = System.getenv("JAVA_HOME");
+        if (javaHome != null && !javaHome.isBlank()) {
+            homes.add(Paths.get(javaHome));
+        }
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String dir : path.split(File.pathSeparator)) {
+                if (!dir.isBlank()) {
+                    homes.add(Paths.get(dir).getParent() != null ? Paths.get(dir).getParent() : Paths.get(dir));
+                }
+            }
+        }
+        addChildren(homes, Paths.get("/usr/lib/jvm"), 0);
+        addChildren(homes, Paths.get(System.getProperty("user.home"), ".sdkman", "candidates", "java"), 0);
+        addChildren(homes, Paths.get("/Library/Java/JavaVirtualMachines"), 0);
+        if (WINDOWS) {
+            String programFiles = System.getenv("ProgramFiles");
+            if (programFiles != null) {
+                addChildren(homes, Paths.get(programFiles, "Java"), 0);
+                addChildren(homes, Paths.get(programFiles, "Eclipse Adoptium"), 0);
+            }
+        }
+        // Our own downloads unpack into java-N/<archive root>/ (Mojang's directly into <component>/).
+        // Only finished installs carry runtime.json; anything else is a partial or foreign tree.
+        File[] runtimes = new File(runtimesDir).listFiles(dir -> new File(dir, "runtime.json").isFile());
+        if (runtimes != null) {
+            for (File runtime : runtimes) {
+                homes.add(runtime.toPath());
+                addChildren(homes, runtime.toPath(), 0);
+            }
+        }
+
+        // Symlinked installs (/usr/bin/java, sdkman's "current") collapse to one entry
+        Set<Path> executables = new LinkedHashSet<>();
+        for (Path home : homes) {
+            for (Path exe : new Path[] { home.resolve("bin").resolve(JAVA_EXECUTABLE),
+                    home.resolve("Contents/Home/bin").resolve(JAVA_EXECUTABLE) }) {
+                try {
+                    if (Files.isRegularFile(exe)) {
+                        executables.add(exe.toRealPath());
+                    }
+                } catch (IOException | SecurityException ignored) {
+                }
+            }
+        }
+        return executables;
+    }
+
+    private void addChildren(List<Path> homes, Path root, int depth) {
+        File[] children = root.toFile().listFiles(File::isDirectory);
+        if (children == null)
+            return;
+        for (File child : children) {
+            homes.add(child.toPath());
+            if (depth > 0) {
+                addChildren(homes, child.toPath(), depth - 1);
+            }
+        }
+    }
+
+    private JavaRuntime lookupOrProbe(Path exe) {
+        try {
+            Path real = exe.toRealPath();
+            long modified = Files.getLastModifiedTime(real).toMillis();
+            JavaRuntime cached = runtimes.get(real.toString());
+            if (cached != null && cached.modified == modified) {
+                return cached;
+            }
+            JavaRuntime runtime = probe(real);
+            if (runtime != null) {
+                runtime.modified = modified;
+            }
+            return runtime;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private JavaRuntime probe(Path exe) {
+        // bin/java -> home; the release file there answers without starting a JVM
+        Path home = exe.getParent().getParent();
+        Map<String, String> props = readRelease(home.resolve("release"));
+        String version = props.get("JAVA_VERSION");
+        String arch = props.get("OS_ARCH");
+        if (version == null || arch == null) {
+            props = spawnProbe(exe);
+            version = props.get("java.version");
+            arch = props.get("os.arch");
+        }
+        if (version == null)
+            return null;
+
+        JavaRuntime runtime = new JavaRuntime();
+        runtime.path = exe.toString();
+        runtime.home = home.toString();
+        runtime.version = version;
+        runtime.major = parseMajor(version);
+        runtime.arch = normalizeArch(arch);
+        return runtime;
+    }
+
+    private Map<String, String> readRelease(Path release) {
+        Map<String, String> props = new HashMap<>();
+        if (!Files.isRegularFile(release))
+            return props;
+        try {
+            for (String line : Files.readAllLines(release, StandardCharsets.UTF_8)) {
+                int eq = line.indexOf('=');
+                if (eq > 0) {
+                    props.put(line.substring(0, eq).trim(), line.substring(eq + 1).trim().replace("\"", ""));
+                }
+            }
+        } catch (IOException e) {
+            LogService.debug("Unreadable release file " + release + ": " + e.getMessage());
+        }
+        return props;
+    }
+
+    private Map<String, String> spawnProbe(Path exe) {
+        Map<String, String> props = new HashMap<>();
+        Path output = null;
+        try {
+            // Output goes to a file rather than a pipe we'd have to drain first, so the timeout
+            // bounds the probe even if the runtime hangs or keeps the stream open
+            output = Files.createTempFile("java-probe", ".txt");
+            Process process = new ProcessBuilder(exe.toString(), "-XshowSettings:properties", "-version")
+                    .redirectErrorStream(true).redirectOutput(output.toFile()).start();
+            if (!process.waitFor(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                LogService.debug("Probing " + exe + " timed out");
+                return props;
+            }
+            for (String line : new String(Files.readAllBytes(output)).split("\\R")) {
+                int eq = line.indexOf(" = ");
+                if (eq > 0) {
+                    props.put(line.substring(0, eq).trim(), line.substring(eq + 3).trim());
+                }
+            }
+        } catch (IOException e) {
+            LogService.debug("Failed to probe " + exe + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (output != null) {
+                output.toFile().delete();
+            }
+        }
+        return props;
+    }
+
+    // "1.8.0_392" -> 8, "17.0.9" -> 17, "21" -> 21
+    static int parseMajor(String version) {
+        String[] parts = version.split("[._+-]");
+        try {
+            int first = Integer.parseInt(parts[0]);
+            return first == 1 && parts.length > 1 ? Integer.parseInt(parts[1]) : first;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static int compareVersions(String a, String b) {
+        String[] pa = a.split("[._+-]");
+        String[] pb = b.split("[._+-]");
+        for (int i = 0; i < Math.max(pa.length, pb.length); i++) {
+            int na = i < pa.length ? parseOrZero(pa[i]) : 0;
+            int nb = i < pb.length ? parseOrZero(pb[i]) : 0;
+            if (na != nb)
+                return Integer.compare(na, nb);
+        }
+        return 0;
+    }
+
+    private static int parseOrZero(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static String hostArch() {
+        return normalizeArch(System.getProperty("os.arch"));
+    }
+
+    static String normalizeArch(String arch) {
+        if (arch == null)
+            return "unknown";
+        switch (arch.toLowerCase()) {
+            case "amd64":
+            case "x86_64":
+            case "x64":
+                return "x64";
+            case "aarch64":
+            case "arm64":
+                return "aarch64";
+            case "x86":
+            case "i386":
+            case "i686":
+                return "x86";
+            default:
+                return arch.toLowerCase();
+        }
+    }
+}
@@ -1,46 +1,129 @@
 package com.launcher.services;
 
+import com.google.gson.Gson;
+import com.launcher.util.Constants;
+import com.launcher.util.TarInputStream;
+
 import java.io.*;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 public class JavaRuntimeService {
 
-    private static final String BASE_URL = "https://api.adoptium.net/v3/binary/latest/%d/ga/windows/x64/jre/hotspot/normal/eclipse";
-    private final String runtimesDir = System.getenv("APPDATA") + "/.minecraft/runtimes";
+    private static final String BASE_URL = "https://api.adoptium.net/v3/binary/latest/%d/ga/%s/%s/jre/hotspot/normal/eclipse";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String MANIFEST_FILE = "runtime.json";
+    private final String runtimesDir = Constants.RUNTIMES_DIR;
+    private final Gson gson = new Gson();
+
+    // Written into an installed runtime so its java binary is found without walking the tree
+    public static class RuntimeManifest {
+        public String javaPath;
+        public int major;
+        public String source;
+        public long installedAt;
+    }
 
     public String getJavaPath(int majorVersion, Consumer<String> statusCallback) {
+        return getJavaPath(majorVersion, statusCallback, new CancellationToken());
+    }
+
+    public String getJavaPath(int majorVersion, Consumer<String> statusCallback, CancellationToken token) {
+        return getJavaPath(majorVersion, null, statusCallback, token);
+    }
+
+    // component is the version json's javaVersion.component (e.g. "java-runtime-gamma"); when
+    // present, Mojang's per-file runtime is preferred over a generic Adoptium archive.
+    public String getJavaPath(int majorVersion, String component, Consumer<String> statusCallback,
+            CancellationToken token) {
+        RuntimeManifestInstaller mojang = new RuntimeManifestInstaller();
+        if (component != null) {
+            File installed = readManifest(mojang.getComponentDir(component));
+            if (installed != null) {
+                try {
+                    mojang.repair(component, statusCallback, token);
+                } catch (IOException e) {
+                    LogService.warn("Could not repair Java runtime " + component + ": " + e.getMessage());
+                }
+                return installed.getAbsolutePath();
+            }
+        }
+
         File javaDir = new File(runtimesDir, "java-" + majorVersion);
-        File javaExe = new File(javaDir, "bin/java.exe");
+        File installed = readManifest(javaDir);
+        if (installed != null) {
+            return installed.getAbsolutePath();
+        }
+
+        // Any matching install the registry knows about (ours, JAVA_HOME, PATH, system JVMs)
+        JavaRuntimeRegistry registry = JavaRuntimeRegistry.getInstance();
+        JavaRuntimeRegistry.JavaRuntime known = registry.findOrScan(majorVersion);
+        if (known != null) {
+            return known.path;
+        }
 
-        // Check if exists
-        if (javaExe.exists()) {
-            return javaExe.getAbsolutePath();
+        if (component != null) {
+            try {
+                String javaPath = mojang.install(component, statusCallback, token);
+                if (javaPath != null) {
+                    registry.describe(javaPath);
+                    return javaPath;
+                }
+            } catch (IOException e) {
+                LogService.warn("Mojang runtime " + component + " failed to install, falling back to Adoptium: "
+                        + e.getMessage());
+            }
         }
 
-        // Download
+        // Extract into a staging dir and rename it into place, so a cancelled or failed install
+        // never looks like a runtime
         statusCallback.accept("Downloading Java " + majorVersion + " Runtime...");
+        File staging = new File(runtimesDir, "java-" + majorVersion + ".installing");
         try {
-            javaDir.mkdirs();
-            String downloadUrl = String.format(BASE_URL, majorVersion);
-            File zipFile = new File(runtimesDir, "java-" + majorVersion + ".zip");
+            deleteDirectory(staging);
+            staging.mkdirs();
+            String downloadUrl = String.format(BASE_URL, majorVersion, adoptiumOs(), adoptiumArch());
 
-            downloadFile(downloadUrl, zipFile);
+            String javaRelative = streamInstall(downloadUrl, staging, majorVersion, statusCallback, token);
+            if (javaRelative == null) {
+                throw new IOException("Runtime archive contains no bin/" + JavaRuntimeRegistry.JAVA_EXECUTABLE);
+            }
 
-            // Unzip
-            statusCallback.accept("Installing Java " + majorVersion + "...");
-            unzip(zipFile, javaDir);
+            RuntimeManifest manifest = new RuntimeManifest();
+            manifest.javaPath = javaRelative;
+            manifest.major = majorVersion;
+            manifest.source = downloadUrl;
+            manifest.installedAt = System.currentTimeMillis();
+            Files.write(new File(staging, MANIFEST_FILE).toPath(),
+                    gson.toJson(manifest).getBytes(StandardCharsets.UTF_8));
 
-            // Cleanup
-            zipFile.delete();
+            // Leftovers of an older, manifest-less install
+            deleteDirectory(javaDir);
+            try {
+                Files.move(staging.toPath(), javaDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging.toPath(), javaDir.toPath());
+            }
 
-            // Find java.exe (it might be in a subfolder after unzip)
-            return findJavaExe(javaDir);
+            String javaPath = new File(javaDir, javaRelative).getAbsolutePath();
+            registry.describe(javaPath);
+            return javaPath;
 
+        } catch (CancellationException e) {
+            deleteDirectory(staging);
+            throw e;
         } catch (Exception e) {
+            deleteDirectory(staging);
             e.printStackTrace();
             statusCallback.accept("Failed to download Java: " + e.getMessage());
             // Fallback to system java
@@ -48,72 +131,241 @@ public class JavaRuntimeService {
         }
     }
 
-    private void downloadFile(String urlStr, File target) throws IOException {
-        URL url = new URL(urlStr);
-        try (BufferedInputStream in = new BufferedInputStream(url.openStream());
-                FileOutputStream fileOutputStream = new FileOutputStream(target)) {
-            byte dataBuffer[] = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
-                fileOutputStream.write(dataBuffer, 0, bytesRead);
+    private File readManifest(File javaDir) {
+        File manifestFile = new File(javaDir, MANIFEST_FILE);
+        if (!manifestFile.isFile())
+            return null;
+        try (Reader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            RuntimeManifest manifest = gson.fromJson(reader, RuntimeManifest.class);
+            File java = manifest != null && manifest.javaPath != null ? new File(javaDir, manifest.javaPath) : null;
+            return java != null && java.isFile() ? java : null;
+        } catch (Exception e) {
+            LogService.warn("Ignoring unreadable runtime manifest " + manifestFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Decodes the archive straight off the HTTP response: zip on Windows, tar.gz elsewhere.
+    // Returns the java executable's path relative to destDir.
+    private String streamInstall(String urlStr, File destDir, int majorVersion, Consumer<String> statusCallback,
+            CancellationToken token) throws IOException {
+        token.throwIfCancelled();
+        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
+        conn.setInstanceFollowRedirects(true);
+        CancellationToken.Registration reg = token.onCancel(conn::disconnect);
+        try {
+            int responseCode = conn.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + urlStr);
+            }
+            long total = conn.getContentLengthLong();
+            try (InputStream raw = new ProgressInputStream(conn.getInputStream(), total,
+                    percent -> statusCallback.accept("Installing Java " + majorVersion + " (" + percent + "%)..."));
+                    BufferedInputStream in = new BufferedInputStream(raw, BUFFER_SIZE)) {
+                in.mark(4);
+                int b0 = in.read();
+                int b1 = in.read();
+                in.reset();
+                if (b0 == 'P' && b1 == 'K') {
+                    return extractZip(new ZipInputStream(in), destDir.toPath(), token);
+                } else if (b0 == 0x1f && b1 == 0x8b) {
+                    return extractTar(new TarInputStream(new GZIPInputStream(in, BUFFER_SIZE)), destDir.toPath(),
+                            token);
+                }
+                throw new IOException("Unrecognised runtime archive format from " + urlStr);
             }
+        } catch (IOException e) {
+            token.throwIfCancelled();
+            throw e;
+        } finally {
+            reg.close();
         }
     }
 
-    private void unzip(File zipFile, File destDir) throws IOException {
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
-            ZipEntry zipEntry = zis.getNextEntry();
-            while (zipEntry != null) {
-                File newFile = newFile(destDir, zipEntry);
-                if (zipEntry.isDirectory()) {
-                    if (!newFile.isDirectory() && !newFile.mkdirs()) {
-                        throw new IOException("Failed to create directory " + newFile);
-                    }
-                } else {
-                    // fix for Windows-created archives
-                    File parent = newFile.getParentFile();
-                    if (!parent.isDirectory() && !parent.mkdirs()) {
-                        throw new IOException("Failed to create directory " + parent);
-                    }
+    private String extractZip(ZipInputStream zis, Path destDir, CancellationToken token) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        String javaRelative = null;
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+            token.throwIfCancelled();
+            Path target = resolveEntry(destDir, entry.getName());
+            if (entry.isDirectory()) {
+                Files.createDirectories(target);
+                continue;
+            }
+            writeEntry(zis, target, buffer);
+            // ZipInputStream never sees the unix mode from the central directory; the launcher
+            // binaries are what need to be runnable
+            if (!JavaRuntimeRegistry.WINDOWS && isLauncherBinary(entry.getName())) {
+                target.toFile().setExecutable(true, false);
+            }
+            javaRelative = pickJava(javaRelative, destDir, target);
+        }
+        return javaRelative;
+    }
 
-                    try (FileOutputStream fos = new FileOutputStream(newFile)) {
-                        byte[] buffer = new byte[1024];
-                        int len;
-                        while ((len = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, len);
-                        }
+    private String extractTar(TarInputStream tis, Path destDir, CancellationToken token) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        String javaRelative = null;
+        TarInputStream.TarEntry entry;
+        while ((entry = tis.getNextEntry()) != null) {
+            token.throwIfCancelled();
+            Path target = resolveEntry(destDir, entry.getName());
+            switch (entry.getType()) {
+                case TarInputStream.TarEntry.DIRECTORY:
+                    Files.createDirectories(target);
+                    break;
+                case TarInputStream.TarEntry.SYMLINK: {
+                    Path link = target.getParent().resolve(entry.getLinkName()).normalize();
+                    if (!link.startsWith(destDir)) {
+                        LogService.warn("Skipping runtime symlink outside the install: " + entry.getName());
+                        break;
                     }
+                    Files.createDirectories(target.getParent());
+                    Files.deleteIfExists(target);
+                    Files.createSymbolicLink(target, Paths.get(entry.getLinkName()));
+                    break;
                 }
-                zipEntry = zis.getNextEntry();
+                case TarInputStream.TarEntry.HARD_LINK: {
+                    Path source = resolveEntry(destDir, entry.getLinkName());
+                    Files.createDirectories(target.getParent());
+                    Files.deleteIfExists(target);
+                    try {
+                        Files.createLink(target, source);
+                    } catch (IOException | UnsupportedOperationException e) {
+                        Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                    break;
+                }
+                case TarInputStream.TarEntry.FILE:
+                    writeEntry(tis, target, buffer);
+                    if (posix) {
+                        Files.setPosixFilePermissions(target, permissions(entry.getMode()));
+                    } else if ((entry.getMode() & 0111) != 0) {
+                        target.toFile().setExecutable(true, false);
+                    }
+                    javaRelative = pickJava(javaRelative, destDir, target);
+                    break;
+                default:
+                    // Devices, fifos and the like have no place in a runtime
+                    break;
+            }
+        }
+        return javaRelative;
+    }
+
+    private void writeEntry(InputStream in, Path target, byte[] buffer) throws IOException {
+        Files.createDirectories(target.getParent());
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                out.write(buffer, 0, len);
             }
         }
     }
 
-    private File newFile(File destinationDir, ZipEntry zipEntry) throws IOException {
-        File destFile = new File(destinationDir, zipEntry.getName());
-        String destDirPath = destinationDir.getCanonicalPath();
-        String destFilePath = destFile.getCanonicalPath();
+    // Shortest bin/java wins, so a nested jre/bin/java never shadows the runtime's own
+    private String pickJava(String current, Path destDir, Path file) {
+        Path parent = file.getParent();
+        if (!file.getFileName().toString().equals(JavaRuntimeRegistry.JAVA_EXECUTABLE) || parent == null
+                || !parent.getFileName().toString().equals("bin"))
+            return current;
+        String relative = destDir.relativize(file).toString();
+        return current == null || relative.length() < current.length() ? relative : current;
+    }
+
+    private boolean isLauncherBinary(String name) {
+        return name.contains("/bin/") || name.endsWith("/jspawnhelper") || name.endsWith("/jexec");
+    }
 
-        if (!destFilePath.startsWith(destDirPath + File.separator)) {
-            throw new IOException("Entry is outside of the target dir: " + zipEntry.getName());
+    private Path resolveEntry(Path destDir, String name) throws IOException {
+        Path target = destDir.resolve(name).normalize();
+        if (!target.startsWith(destDir)) {
+            throw new IOException("Entry is outside of the target dir: " + name);
         }
+        return target;
+    }
 
-        return destFile;
+    private static Set<PosixFilePermission> permissions(int mode) {
+        Set<PosixFilePermission> perms = EnumSet.noneOf(PosixFilePermission.class);
+        PosixFilePermission[] order = { PosixFilePermission.OTHERS_EXECUTE, PosixFilePermission.OTHERS_WRITE,
+                PosixFilePermission.OTHERS_READ, PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.GROUP_WRITE,
+                PosixFilePermission.GROUP_READ, PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.OWNER_WRITE,
+                PosixFilePermission.OWNER_READ };
+        for (int i = 0; i < order.length; i++) {
+            if ((mode & (1 << i)) != 0) {
+                perms.add(order[i]);
+            }
+        }
+        // Never install something the launcher itself can't read or replace
+        perms.add(PosixFilePermission.OWNER_READ);
+        perms.add(PosixFilePermission.OWNER_WRITE);
+        return perms;
     }
 
-    private String findJavaExe(File dir) {
-        // BFS or DFS to find bin/java.exe
-        // The zip usually contains a root folder like 'jdk-21.0.1+12-jre'
-        try {
-            return Files.walk(dir.toPath())
-                    .filter(p -> p.toString().endsWith("bin\\java.exe") || p.toString().endsWith("bin/java.exe"))
-                    .findFirst()
-                    .map(Path::toAbsolutePath)
-                    .map(Path::toString)
-                    .orElse("java");
-        } catch (IOException e) {
-            e.printStackTrace();
-            return "java";
+    private static String adoptiumOs() {
+        String os = System.getProperty("os.name").toLowerCase();
+        if (os.contains("win"))
+            return "windows";
+        if (os.contains("mac"))
+            return "mac";
+        return "linux";
+    }
+
+    private static String adoptiumArch() {
+        String arch = JavaRuntimeRegistry.hostArch();
+        return arch.equals("x86") ? "x32" : arch;
+    }
+
+    // Reports whole percentages as bytes come off the wire
+    private static class ProgressInputStream extends FilterInputStream {
+        private final long total;
+        private final Consumer<Integer> listener;
+        private long read;
+        private int lastPercent = -1;
+
+        ProgressInputStream(InputStream in, long total, Consumer<Integer> listener) {
+            super(in);
+            this.total = total;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                advance(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                advance(n);
+            return n;
+        }
+
+        private void advance(long n) {
+            read += n;
+            if (total <= 0)
+                return;
+            int percent = (int) (read * 100 / total);
+            if (percent != lastPercent) {
+                lastPercent = percent;
+                listener.accept(percent);
+            }
+        }
+    }
+
+    private void deleteDirectory(File directory) {
+        File[] allContents = directory.listFiles();
+        if (allContents != null) {
+            for (File file : allContents) {
+                deleteDirectory(file);
+            }
         }
+        directory.delete();
     }
 }
@@ -0,0 +1,190 @@
+package com.launcher.services;
+
+import com.launcher.util.ArgFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// GC tuning presets. Flags are derived from the core count, physical memory, the heap the
+// instance will get and the Java major of the runtime, then checked against that runtime once
+// (java <flags> -version) so an unsupported preset degrades to plain defaults instead of a JVM
+// that refuses to start.
+public class JvmProfileService {
+
+    public enum Preset {
+        DEFAULT("Default"),
+        G1_LOW_PAUSE("G1 low pause"),
+        ZGC_GENERATIONAL("ZGC generational"),
+        SHENANDOAH("Shenandoah");
+
+        private final String label;
+
+        Preset(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final long CHECK_TIMEOUT_SECONDS = 15;
+
+    private static JvmProfileService instance;
+    // runtime path|mtime|flags -> accepted; persisted so each combination is spawned once
+    private final Map<String, Boolean> checks = new ConcurrentHashMap<>();
+
+    private JvmProfileService() {
+        Map<String, Boolean> saved = LocalStateStore.getInstance().getJson(LocalStateStore.JVM_FLAG_CHECKS,
+                LocalStateStore.mapOf(String.class, Boolean.class));
+        if (saved != null) {
+            checks.putAll(saved);
+        }
+    }
+
+    public static synchronized JvmProfileService getInstance() {
+        if (instance == null) {
+            instance = new JvmProfileService();
+        }
+        return instance;
+    }
+
+    public static Preset parse(String name) {
+        if (name == null || name.isEmpty())
+            return null;
+        try {
+            return Preset.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Instance override first, then the global default
+    public Preset presetFor(String instanceId) {
+        InstanceMetadataService.InstanceMetadata meta = InstanceMetadataService.getInstance().getMetadata(instanceId);
+        Preset preset = meta != null ? parse(meta.jvmProfile) : null;
+        if (preset == null) {
+            preset = parse(SettingsService.getInstance().getJvmProfile());
+        }
+        return preset != null ? preset : Preset.DEFAULT;
+    }
+
+    public List<String> flags(Preset preset, int javaMajor, int heapMaxMb) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long physicalMb = HeapAdvisorService.physicalMemoryMb();
+        int concThreads = Math.max(1, cores / 4);
+        List<String> flags = new ArrayList<>();
+        switch (preset) {
+            case G1_LOW_PAUSE:
+                // Young-heavy G1 tuned for a game loop: lots of short-lived garbage per frame
+                flags.add("-XX:+UseG1GC");
+                flags.add("-XX:MaxGCPauseMillis=" + (cores >= 8 ? 30 : 50));
+                flags.add("-XX:+UnlockExperimentalVMOptions");
+                flags.add("-XX:G1NewSizePercent=" + (heapMaxMb >= 12288 ? 40 : 30));
+                flags.add("-XX:G1MaxNewSizePercent=" + (heapMaxMb >= 12288 ? 50 : 40));
+                flags.add("-XX:G1HeapRegionSize=" + (heapMaxMb >= 12288 ? "16M" : "8M"));
+                flags.add("-XX:G1ReservePercent=20");
+                flags.add("-XX:G1MixedGCCountTarget=4");
+                flags.add("-XX:InitiatingHeapOccupancyPercent=15");
+                flags.add("-XX:ParallelGCThreads=" + cores);
+                flags.add("-XX:ConcGCThreads=" + concThreads);
+                flags.add("-XX:+ParallelRefProcEnabled");
+                flags.add("-XX:+DisableExplicitGC");
+                break;
+            case ZGC_GENERATIONAL:
+                flags.add("-XX:+UseZGC");
+                // Generational mode is opt-in on 21-22, the default from 23 and the flag is gone later
+                if (javaMajor == 21 || javaMajor == 22) {
+                    flags.add("-XX:+ZGenerational");
+                }
+                if (javaMajor < 15) {
+                    flags.add(0, "-XX:+UnlockExperimentalVMOptions");
+                }
+                flags.add("-XX:ConcGCThreads=" + Math.max(1, cores / 2));
+                flags.add("-XX:+DisableExplicitGC");
+                break;
+            case SHENANDOAH:
+                flags.add("-XX:+UseShenandoahGC");
+                flags.add("-XX:ShenandoahGCHeuristics=" + (cores >= 4 ? "adaptive" : "compact"));
+                flags.add("-XX:ConcGCThreads=" + concThreads);
+                flags.add("-XX:+DisableExplicitGC");
+                break;
+            default:
+                return flags;
+        }
+        // Touching the whole heap up front trades launch time for no page-fault stutter later;
+        // only worth it when the heap is a small slice of the machine
+        if (physicalMb > 0 && heapMaxMb * 3L < physicalMb) {
+            flags.add("-XX:+AlwaysPreTouch");
+        }
+        return flags;
+    }
+
+    // Flags for a launch, validated against the runtime. Extra per-instance args are appended.
+    public List<String> launchFlags(String instanceId, String javaPath, int javaMajor, int heapMaxMb) {
+        Preset preset = presetFor(instanceId);
+        List<String> flags = flags(preset, javaMajor, heapMaxMb);
+        if (!flags.isEmpty() && !accepts(javaPath, flags)) {
+            LogService.warn("Java " + javaMajor + " at " + javaPath + " rejects the " + preset
+                    + " profile, launching with default GC settings");
+            flags = new ArrayList<>();
+        }
+        InstanceMetadataService.InstanceMetadata meta = InstanceMetadataService.getInstance().getMetadata(instanceId);
+        if (meta != null && meta.extraJvmArgs != null && !meta.extraJvmArgs.isBlank()) {
+            List<String> extra = ArgFile.split(meta.extraJvmArgs);
+            if (accepts(javaPath, extra)) {
+                flags.addAll(extra);
+            } else {
+                LogService.warn("Ignoring JVM arguments the runtime rejects: " + meta.extraJvmArgs);
+            }
+        }
+        return flags;
+    }
+
+    public boolean accepts(String javaPath, List<String> flags) {
+        File exe = new File(javaPath);
+        String key = exe.getAbsolutePath() + "|" + exe.lastModified() + "|" + String.join(" ", flags);
+        Boolean cached = checks.get(key);
+        if (cached != null)
+            return cached;
+
+        List<String> command = new ArrayList<>();
+        command.add(javaPath);
+        command.addAll(flags);
+        // Keep the check itself cheap: a tiny heap and no pre-touching
+        command.removeIf(f -> f.equals("-XX:+AlwaysPreTouch"));
+        command.add("-Xmx64M");
+        command.add("-version");
+        boolean ok;
+        try {
+            // Output goes nowhere instead of through a pipe we'd have to drain, so the timeout
+            // below bounds the whole check even if the runtime hangs
+            Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            if (!process.waitFor(CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                // Says nothing about the flags (a slow disk, a busy machine); ask again next launch
+                LogService.warn("Validating JVM flags with " + javaPath + " timed out");
+                return false;
+            }
+            ok = process.exitValue() == 0;
+        } catch (IOException e) {
+            // Could not spawn at all; don't cache so the next launch retries
+            LogService.warn("Could not validate JVM flags with " + javaPath + ": " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        checks.put(key, ok);
+        LocalStateStore.getInstance().putJson(LocalStateStore.JVM_FLAG_CHECKS, new HashMap<>(checks));
+        return ok;
+    }
+}
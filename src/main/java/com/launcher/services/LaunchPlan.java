@@ -0,0 +1,56 @@
+package com.launcher.services;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+// What the last launch of an instance actually ran, kept in launcher-logs/launch-plan.json for
+// troubleshooting and timing. Never holds the access token: game arguments are not recorded.
+public class LaunchPlan {
+
+    private static final String FILE_NAME = "launch-plan.json";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    public String versionId;
+    public String javaPath;
+    public int javaMajor;
+    public String mainClass;
+    // Null when JVM arguments went on the command line (Java 8 has no @argfile support)
+    public String argFile;
+    public boolean argFileReused;
+    public int jvmArgCount;
+    public int classpathEntries;
+    // Resolved classpath, so the next session can prewarm it before PLAY is pressed
+    public List<String> classpath;
+    // Libraries dropped by LibraryResolver, with the version kept instead
+    public List<String> prunedLibraries;
+    public int commandLength;
+    public long spawnMillis;
+    public long launchedAt;
+
+    public static LaunchPlan load(File instanceDir) {
+        File file = new File(new File(instanceDir, "launcher-logs"), FILE_NAME);
+        if (!file.isFile())
+            return null;
+        try {
+            return GSON.fromJson(Files.readString(file.toPath(), StandardCharsets.UTF_8), LaunchPlan.class);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public void save(File instanceDir) {
+        File dir = new File(instanceDir, "launcher-logs");
+        dir.mkdirs();
+        try {
+            Files.writeString(new File(dir, FILE_NAME).toPath(), GSON.toJson(this), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LogService.warn("Could not save launch plan: " + e.getMessage());
+        }
+    }
+}
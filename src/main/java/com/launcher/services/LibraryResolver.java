@@ -0,0 +1,268 @@
+package com.launcher.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Picks one version per artifact from a merged (inheritsFrom) library list. Each artifact
+// (group:name[:classifier]) is a node whose candidates are the versions declared at each profile
+// depth; the rule decides between them. Classified artifacts such as LWJGL natives follow the
+// version chosen for their base artifact so code and natives never skew.
+public class LibraryResolver {
+
+    public enum Rule {
+        // Highest version wins regardless of which profile declared it
+        HIGHEST,
+        // The most derived profile wins (the child's libraries override the parent's)
+        NEAREST
+    }
+
+    public static class Resolution {
+        public final List<VersionProfile.Library> libraries = new ArrayList<>();
+        public final List<String> pruned = new ArrayList<>();
+    }
+
+    private static class Candidate {
+        final VersionProfile.Library lib;
+        final String version;
+        final int depth;
+        final int order;
+
+        Candidate(VersionProfile.Library lib, String version, int depth, int order) {
+            this.lib = lib;
+            this.version = version;
+            this.depth = depth;
+            this.order = order;
+        }
+    }
+
+    private final Rule rule;
+
+    public LibraryResolver(Rule rule) {
+        this.rule = rule;
+    }
+
+    public static Rule parseRule(String name) {
+        try {
+            return Rule.valueOf(name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Rule.HIGHEST;
+        }
+    }
+
+    public Resolution resolve(List<VersionProfile.Library> libs) {
+        Map<String, List<Candidate>> nodes = new LinkedHashMap<>();
+        List<Candidate> unnamed = new ArrayList<>();
+        for (int i = 0; i < libs.size(); i++) {
+            VersionProfile.Library lib = libs.get(i);
+            String[] coords = coordinates(lib);
+            Candidate candidate = new Candidate(lib, coords != null ? coords[2] : null, lib.depth, i);
+            if (coords == null) {
+                unnamed.add(candidate);
+            } else {
+                nodes.computeIfAbsent(key(coords), k -> new ArrayList<>()).add(candidate);
+            }
+        }
+
+        Map<String, Candidate> chosen = new HashMap<>();
+        Resolution resolution = new Resolution();
+        // Base artifacts first, so classified ones can follow their version
+        for (Map.Entry<String, List<Candidate>> node : nodes.entrySet()) {
+            if (!isClassified(node.getKey())) {
+                chosen.put(node.getKey(), pick(node.getValue()));
+            }
+        }
+        for (Map.Entry<String, List<Candidate>> node : nodes.entrySet()) {
+            String key = node.getKey();
+            if (!isClassified(key))
+                continue;
+            Candidate winner = pick(node.getValue());
+            Candidate base = chosen.get(baseKey(key));
+            if (base != null && !base.version.equals(winner.version)) {
+                Candidate aligned = null;
+                for (Candidate c : node.getValue()) {
+                    if (c.version.equals(base.version))
+                        aligned = c;
+                }
+                if (aligned != null) {
+                    winner = aligned;
+                } else {
+                    LogService.warn("No " + key + " " + base.version + " declared; keeping " + winner.version
+                            + " (version skew with " + baseKey(key) + ")");
+                }
+            }
+            chosen.put(key, winner);
+        }
+
+        List<Candidate> kept = new ArrayList<>(unnamed);
+        for (Map.Entry<String, List<Candidate>> node : nodes.entrySet()) {
+            Candidate winner = chosen.get(node.getKey());
+            kept.add(winner);
+            for (Candidate c : node.getValue()) {
+                if (c == winner)
+                    continue;
+                resolution.pruned.add(c.lib.name + (c.version.equals(winner.version) ? " (duplicate)"
+                        : " (using " + winner.version + ")"));
+            }
+        }
+        // Keep the declaration order of the winners: it is the classpath order
+        kept.sort((a, b) -> Integer.compare(a.order, b.order));
+        for (Candidate c : kept) {
+            resolution.libraries.add(c.lib);
+        }
+        return resolution;
+    }
+
+    private Candidate pick(List<Candidate> candidates) {
+        Candidate best = candidates.get(0);
+        for (Candidate c : candidates) {
+            int cmp;
+            if (rule == Rule.HIGHEST) {
+                cmp = compareVersions(c.version, best.version);
+                if (cmp == 0)
+                    cmp = Integer.compare(best.depth, c.depth);
+            } else {
+                cmp = Integer.compare(best.depth, c.depth);
+            }
+            // Ties go to the earlier declaration
+            if (cmp > 0 || cmp == 0 && c.order < best.order) {
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    // group, name, version, classifier (or null); "@ext" suffixes are dropped
+    private static String[] coordinates(VersionProfile.Library lib) {
+        if (lib.name == null)
+            return null;
+        String name = lib.name;
+        int at = name.indexOf('@');
+        if (at >= 0) {
+            name = name.substring(0, at);
+        }
+        String[] parts = name.split(":");
+        if (parts.length < 3)
+            return null;
+        return new String[] { parts[0], parts[1], parts[2], parts.length >= 4 ? parts[3] : null };
+    }
+
+    private static String key(String[] coords) {
+        return coords[0] + ":" + coords[1] + (coords[3] != null ? ":" + coords[3] : "");
+    }
+
+    private static boolean isClassified(String key) {
+        return key.split(":").length > 2;
+    }
+
+    private static String baseKey(String key) {
+        String[] parts = key.split(":");
+        return parts[0] + ":" + parts[1];
+    }
+
+    // Maven-style ordering: numeric parts compare as numbers, trailing zeros don't matter
+    // (1.0 == 1.0.0), and qualifiers sort alpha < beta < milestone < rc < snapshot < release < sp.
+    static int compareVersions(String a, String b) {
+        List<String> x = tokens(a);
+        List<String> y = tokens(b);
+        int n = Math.max(x.size(), y.size());
+        for (int i = 0; i < n; i++) {
+            String p = i < x.size() ? x.get(i) : null;
+            String q = i < y.size() ? y.get(i) : null;
+            int cmp = compareToken(p, q);
+            if (cmp != 0)
+                return cmp;
+        }
+        return 0;
+    }
+
+    private static List<String> tokens(String version) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        Boolean digits = null;
+        for (char c : version.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '.' || c == '-' || c == '_' || c == '+') {
+                flush(tokens, current);
+                digits = null;
+                continue;
+            }
+            boolean isDigit = Character.isDigit(c);
+            // "1rc2" splits into 1, rc, 2
+            if (digits != null && digits != isDigit) {
+                flush(tokens, current);
+            }
+            digits = isDigit;
+            current.append(c);
+        }
+        flush(tokens, current);
+        // Trailing zeros and release markers are insignificant
+        while (!tokens.isEmpty() && (tokens.get(tokens.size() - 1).matches("0+")
+                || qualifierRank(tokens.get(tokens.size() - 1)) == RELEASE)) {
+            tokens.remove(tokens.size() - 1);
+        }
+        return tokens;
+    }
+
+    private static void flush(List<String> tokens, StringBuilder current) {
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    private static final int RELEASE = 6;
+
+    private static int qualifierRank(String q) {
+        switch (q) {
+            case "alpha":
+            case "a":
+                return 1;
+            case "beta":
+            case "b":
+                return 2;
+            case "milestone":
+            case "m":
+            case "pre":
+                return 3;
+            case "rc":
+            case "cr":
+                return 4;
+            case "snapshot":
+                return 5;
+            case "ga":
+            case "final":
+            case "release":
+                return RELEASE;
+            case "sp":
+                return 7;
+            default:
+                // Unknown qualifiers sort after everything known, as in Maven
+                return 8;
+        }
+    }
+
+    // A missing token behaves like a release: 1.0 > 1.0-beta but 1.0 < 1.0.1 and 1.0 < 1.0-sp
+    private static int compareToken(String p, String q) {
+        boolean pNum = p != null && p.chars().allMatch(Character::isDigit);
+        boolean qNum = q != null && q.chars().allMatch(Character::isDigit);
+        if (pNum && qNum) {
+            String a = p.replaceFirst("^0+(?=.)", "");
+            String b = q.replaceFirst("^0+(?=.)", "");
+            return a.length() != b.length() ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+        }
+        // Against a missing token a number only counts if non-zero: 1.0-rc vs 1.0 compares rc to nothing
+        if (pNum)
+            return q == null && p.matches("0+") ? 0 : 1;
+        if (qNum)
+            return p == null && q.matches("0+") ? 0 : -1;
+        int rp = p == null ? RELEASE : qualifierRank(p);
+        int rq = q == null ? RELEASE : qualifierRank(q);
+        if (rp != rq)
+            return Integer.compare(rp, rq);
+        // Alphabetical among unknown qualifiers
+        return p == null || q == null ? 0 : p.compareTo(q);
+    }
+}
@@ -0,0 +1,412 @@
+package com.launcher.services;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.launcher.util.Constants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+// Single state file (launcher_state.db) holding settings, instance metadata, the session, the installed
+// index and cached manifests. File validation records, which are large and change on their own
+// schedule, live in launcher_validation.db and are only rewritten when they change. Both files use:
+//   "AGLS" | int formatVersion | int sectionCount | { short nameLen | name | int len | int crc32 | payload }*
+// A section whose checksum fails is dropped on its own; the rest of the file still loads.
+public class LocalStateStore {
+    public static final String SETTINGS = "settings";
+    public static final String INSTANCES = "instances";
+    public static final String SESSION = "session";
+    public static final String INSTALLED = "installed";
+    public static final String MANIFEST = "manifest";
+    public static final String RUNTIMES = "runtimes";
+    public static final String JVM_FLAG_CHECKS = "jvmFlagChecks";
+    public static final String STORED_JARS = "storedJars";
+    private static final String VALIDATION = "validation";
+
+    private static final byte[] MAGIC = { 'A', 'G', 'L', 'S' };
+    private static final int FORMAT_VERSION = 1;
+    private static final long FLUSH_DELAY_MS = 1000;
+
+    private static LocalStateStore instance;
+    private final Gson gson = new Gson();
+    private final File stateFile = new File(Constants.GAME_DIR, "launcher_state.db");
+    private final File validationFile = new File(Constants.GAME_DIR, "launcher_validation.db");
+    private final Map<String, byte[]> sections = new ConcurrentHashMap<>();
+    // Values handed over by putJsonDeferred, serialized on the next flush or read
+    private final Map<String, Object> deferred = new ConcurrentHashMap<>();
+    private final Map<String, FileRecord> validation = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicBoolean validationDirty = new AtomicBoolean(false);
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "state-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Object scheduleLock = new Object();
+    private ScheduledFuture<?> pendingFlush;
+
+    private static class FileRecord {
+        final long size;
+        final long lastModified;
+
+        FileRecord(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private LocalStateStore() {
+        long start = System.nanoTime();
+        if (stateFile.exists()) {
+            load();
+        } else {
+            migrateLegacyFiles();
+        }
+        loadValidation();
+        LogService.debug("Loaded local state (" + sections.size() + " sections, " + validation.size()
+                + " validation records) in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "state-shutdown"));
+    }
+
+    public static synchronized LocalStateStore getInstance() {
+        if (instance == null) {
+            instance = new LocalStateStore();
+        }
+        return instance;
+    }
+
+    // One bulk read into a heap buffer. The file is deliberately not kept mapped: on Windows a live
+    // mapping blocks replacing the file until the buffer is garbage collected.
+    private void load() {
+        ByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(stateFile.toPath(), StandardOpenOption.READ)) {
+            buf = ByteBuffer.allocate((int) ch.size());
+            while (buf.hasRemaining() && ch.read(buf) != -1) {
+            }
+            buf.flip();
+        } catch (IOException e) {
+            LogService.error("Failed to read local state " + stateFile.getAbsolutePath(), e);
+            migrateLegacyFiles();
+            return;
+        }
+
+        int version = readSections(buf, sections);
+        if (version < 0) {
+            LogService.warn("Local state file has an unknown format, rebuilding it");
+            migrateLegacyFiles();
+            return;
+        }
+        migrate(version);
+        // Older launchers kept the validation records as a section of the state file
+        byte[] legacy = sections.remove(VALIDATION);
+        if (legacy != null) {
+            decodeValidation(legacy);
+            dirty.set(true);
+            validationDirty.set(true);
+        }
+    }
+
+    private void loadValidation() {
+        if (!validationFile.exists())
+            return;
+        Map<String, byte[]> read = new HashMap<>();
+        try {
+            readSections(ByteBuffer.wrap(Files.readAllBytes(validationFile.toPath())), read);
+        } catch (IOException e) {
+            LogService.warn("Failed to read file validation records: " + e.getMessage());
+            return;
+        }
+        byte[] payload = read.get(VALIDATION);
+        if (payload != null) {
+            decodeValidation(payload);
+        }
+    }
+
+    // Reads every intact section into target. Returns the format version, or -1 if buf does not
+    // start with the magic.
+    private static int readSections(ByteBuffer buf, Map<String, byte[]> target) {
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buf.get(magic);
+            if (!java.util.Arrays.equals(magic, MAGIC))
+                return -1;
+            int version = buf.getInt();
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[buf.getShort()];
+                buf.get(name);
+                byte[] payload = new byte[buf.getInt()];
+                int crc = buf.getInt();
+                buf.get(payload);
+                String section = new String(name, StandardCharsets.UTF_8);
+                if (crc32(payload) != crc) {
+                    LogService.warn("Dropping corrupt local state section: " + section);
+                    continue;
+                }
+                target.put(section, payload);
+            }
+            return version;
+        } catch (RuntimeException e) {
+            // Truncated file: keep whatever sections were read intact
+            LogService.warn("Local state file is truncated, keeping " + target.size() + " sections");
+            return FORMAT_VERSION;
+        }
+    }
+
+    private void migrate(int fromVersion) {
+        if (fromVersion > FORMAT_VERSION) {
+            LogService.warn("Local state was written by a newer launcher (format " + fromVersion + ")");
+        }
+        // Format upgrades go here, one step per version
+        if (fromVersion != FORMAT_VERSION) {
+            dirty.set(true);
+        }
+    }
+
+    // First run with the store: fold the separate settings/instances/session files into it.
+    // The old files are left in place so an older launcher can still read them.
+    private void migrateLegacyFiles() {
+        File settingsFile = new File(Constants.GAME_DIR, "launcher_settings.properties");
+        if (settingsFile.exists()) {
+            try (FileReader reader = new FileReader(settingsFile)) {
+                Properties props = new Properties();
+                props.load(reader);
+                Map<String, String> values = new HashMap<>();
+                for (String key : props.stringPropertyNames()) {
+                    values.put(key, props.getProperty(key));
+                }
+                putJson(SETTINGS, values);
+            } catch (Exception e) {
+                LogService.error("Failed to migrate " + settingsFile.getAbsolutePath(), e);
+            }
+        }
+        importRaw(INSTANCES, new File(Constants.GAME_DIR, "instances.json"));
+        importRaw(SESSION, new File(System.getenv("APPDATA") + "/.minecraft/launcher_session.json"));
+        if (!sections.isEmpty()) {
+            LogService.info("Migrated " + sections.size() + " legacy state files into " + stateFile.getName());
+            flush();
+        }
+    }
+
+    private void importRaw(String section, File file) {
+        if (!file.exists())
+            return;
+        try {
+            put(section, Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            LogService.error("Failed to migrate " + file.getAbsolutePath(), e);
+        }
+    }
+
+    public String getString(String section) {
+        if (deferred.containsKey(section)) {
+            serializeDeferred();
+        }
+        byte[] payload = sections.get(section);
+        return payload != null ? new String(payload, StandardCharsets.UTF_8) : null;
+    }
+
+    public <T> T getJson(String section, Type type) {
+        String json = getString(section);
+        if (json == null)
+            return null;
+        try {
+            return gson.fromJson(json, type);
+        } catch (Exception e) {
+            LogService.warn("Ignoring unreadable local state section " + section + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void putJson(String section, Object value) {
+        put(section, gson.toJson(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Like putJson, but serialization happens later on the flusher thread, keeping it off callers
+    // such as UI setters. value must be safe to read from that thread (e.g. a concurrent map) and is
+    // written as it is at flush time.
+    public void putJsonDeferred(String section, Object value) {
+        deferred.put(section, value);
+        scheduleFlush();
+    }
+
+    private void serializeDeferred() {
+        for (String section : deferred.keySet()) {
+            Object value = deferred.remove(section);
+            if (value == null)
+                continue;
+            byte[] payload = gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+            byte[] previous = sections.put(section, payload);
+            if (previous == null || !java.util.Arrays.equals(previous, payload)) {
+                dirty.set(true);
+            }
+        }
+    }
+
+    public void put(String section, byte[] payload) {
+        byte[] previous = sections.put(section, payload);
+        if (previous == null || !java.util.Arrays.equals(previous, payload)) {
+            markDirty();
+        }
+    }
+
+    public void remove(String section) {
+        if (sections.remove(section) != null) {
+            markDirty();
+        }
+    }
+
+    // Size + mtime check against the record taken when the file was last downloaded or verified.
+    // Files without a record are assumed intact so existing installs are not re-downloaded.
+    public boolean isIntact(File file) {
+        if (!file.isFile())
+            return false;
+        FileRecord record = validation.get(file.getAbsolutePath());
+        return record == null || (record.size == file.length() && record.lastModified == file.lastModified());
+    }
+
+    public boolean isValidated(File file) {
+        FileRecord record = validation.get(file.getAbsolutePath());
+        return record != null && file.isFile() && record.size == file.length()
+                && record.lastModified == file.lastModified();
+    }
+
+    public void recordValidated(File file) {
+        validation.put(file.getAbsolutePath(), new FileRecord(file.length(), file.lastModified()));
+        validationDirty.set(true);
+        scheduleFlush();
+    }
+
+    public void forgetValidation(File file) {
+        if (validation.remove(file.getAbsolutePath()) != null) {
+            validationDirty.set(true);
+            scheduleFlush();
+        }
+    }
+
+    private void markDirty() {
+        dirty.set(true);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        synchronized (scheduleLock) {
+            if (pendingFlush != null) {
+                pendingFlush.cancel(false);
+            }
+            pendingFlush = flusher.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Writes whichever of the two files changed. Returns false if a write failed; that file stays
+    // dirty and is retried on the next change.
+    public synchronized boolean flush() {
+        serializeDeferred();
+        boolean ok = true;
+        if (dirty.getAndSet(false) && !writeSections(stateFile, new LinkedHashMap<>(sections))) {
+            dirty.set(true);
+            ok = false;
+        }
+        if (validationDirty.getAndSet(false)
+                && !writeSections(validationFile, Map.of(VALIDATION, encodeValidation()))) {
+            validationDirty.set(true);
+            ok = false;
+        }
+        return ok;
+    }
+
+    private boolean writeSections(File file, Map<String, byte[]> snapshot) {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            int size = MAGIC.length + 8;
+            for (Map.Entry<String, byte[]> e : snapshot.entrySet()) {
+                size += 2 + e.getKey().getBytes(StandardCharsets.UTF_8).length + 8 + e.getValue().length;
+            }
+            ByteBuffer buf = ByteBuffer.allocate(size);
+            buf.put(MAGIC).putInt(FORMAT_VERSION).putInt(snapshot.size());
+            for (Map.Entry<String, byte[]> e : snapshot.entrySet()) {
+                byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+                buf.putShort((short) name.length).put(name);
+                buf.putInt(e.getValue().length).putInt(crc32(e.getValue())).put(e.getValue());
+            }
+            buf.flip();
+            try (FileChannel ch = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) {
+                    ch.write(buf);
+                }
+            }
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            tmpFile.delete();
+            LogService.error("Failed to save local state to " + file.getAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    private byte[] encodeValidation() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(validation.size() * 96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            Map<String, FileRecord> copy = new HashMap<>(validation);
+            out.writeInt(copy.size());
+            for (Map.Entry<String, FileRecord> e : copy.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().size);
+                out.writeLong(e.getValue().lastModified);
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+        }
+        return bytes.toByteArray();
+    }
+
+    private void decodeValidation(byte[] payload) {
+        try (java.io.DataInputStream in = new java.io.DataInputStream(new java.io.ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                validation.put(in.readUTF(), new FileRecord(in.readLong(), in.readLong()));
+            }
+        } catch (IOException e) {
+            LogService.warn("Failed to read file validation records: " + e.getMessage());
+        }
+    }
+
+    private static int crc32(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    public static Type mapOf(Class<?> key, Class<?> value) {
+        return TypeToken.getParameterized(Map.class, key, value).getType();
+    }
+}
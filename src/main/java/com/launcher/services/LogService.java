@@ -1,15 +1,63 @@
 package com.launcher.services;
 
+import com.launcher.util.RollingFileChannel;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 public class LogService {
     private static final String LOG_DIR = System.getProperty("user.home") + "/Documents/MinecraftLauncher/logs";
     private static final String LOG_FILE = LOG_DIR + "/launcher.log";
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final long MAX_FILE_BYTES = Long.getLong("launcher.log.maxSizeMb", 10) * 1024 * 1024;
+    private static final int MAX_ARCHIVES = Integer.getInteger("launcher.log.maxArchives", 10);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    // Ring buffer shared by all logging threads. Producers claim a sequence number with one
+    // atomic increment and publish into the slot; the single writer thread drains in order.
+    private static final int CAPACITY = 8192;
+    private static final int MASK = CAPACITY - 1;
+    private static final int MAX_BATCH = 512;
+    private static final AtomicReferenceArray<Entry> ring = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLong head = new AtomicLong();
+    private static volatile long tail;
+
+    private static volatile Level minLevel = parseLevel(System.getProperty("launcher.logLevel"), Level.INFO);
+    private static volatile boolean running = true;
+    private static final Thread writer;
+
+    // Only touched by whoever formats entries (normally just the writer thread)
+    private static long cachedSecond = -1;
+    private static String cachedTimestamp = "";
+
+    private static final class Entry {
+        final long timestamp;
+        final Level level;
+        final String message;
+
+        Entry(long timestamp, Level level, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.message = message;
+        }
+    }
 
     static {
         try {
@@ -18,43 +66,206 @@ public class LogService {
             System.err.println("Failed to create log directory: " + e.getMessage());
             e.printStackTrace();
         }
+
+        writer = new Thread(LogService::drainLoop, "launcher-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(LogService::shutdown, "launcher-log-shutdown"));
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message);
     }
 
     public static void info(String message) {
-        log("INFO", message);
+        log(Level.INFO, message);
     }
 
     public static void error(String message) {
-        log("ERROR", message);
+        log(Level.ERROR, message);
     }
 
     public static void warn(String message) {
-        log("WARN", message);
+        log(Level.WARN, message);
     }
 
     public static void error(String message, Throwable throwable) {
-        log("ERROR", message);
-        if (throwable != null) {
-            try (FileWriter fw = new FileWriter(LOG_FILE, true);
-                    PrintWriter pw = new PrintWriter(fw)) {
-                throwable.printStackTrace(pw);
-            } catch (Exception e) {
-                e.printStackTrace();
+        if (!isEnabled(Level.ERROR))
+            return;
+        if (throwable == null) {
+            log(Level.ERROR, message);
+            return;
+        }
+        // Message and stack trace go out as one entry so other threads cannot interleave
+        StringWriter sw = new StringWriter();
+        sw.append(message).append(System.lineSeparator());
+        throwable.printStackTrace(new PrintWriter(sw));
+        String text = sw.toString();
+        log(Level.ERROR, text.endsWith(System.lineSeparator())
+                ? text.substring(0, text.length() - System.lineSeparator().length())
+                : text);
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= minLevel.ordinal();
+    }
+
+    public static void setLevel(Level level) {
+        minLevel = level;
+    }
+
+    public static Level getLevel() {
+        return minLevel;
+    }
+
+    private static void log(Level level, String message) {
+        if (!isEnabled(level))
+            return;
+        Entry entry = new Entry(System.currentTimeMillis(), level, message);
+
+        if (!running) {
+            // Writer is gone (JVM shutting down); fall back to the console
+            System.out.print(format(entry, new StringBuilder()));
+            return;
+        }
+
+        long seq = head.getAndIncrement();
+        // Ring full: wait for the writer to free the slot instead of dropping lines
+        while (seq - tail >= CAPACITY) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(50_000);
+        }
+        ring.set((int) (seq & MASK), entry);
+        LockSupport.unpark(writer);
+    }
+
+    // Blocks until everything logged before this call has been written, or the timeout passes.
+    public static void flush(long timeout, TimeUnit unit) {
+        long target = head.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (tail < target && System.nanoTime() < deadline && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+
+    public static void shutdown() {
+        flush(2, TimeUnit.SECONDS);
+        running = false;
+        LockSupport.unpark(writer);
+    }
+
+    private static void drainLoop() {
+        StringBuilder batch = new StringBuilder(16 * 1024);
+        RollingFileChannel channel = openChannel();
+        ByteBuffer out = ByteBuffer.allocateDirect(64 * 1024);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        while (running || tail < head.get()) {
+            int drained = 0;
+            long next = tail;
+            Entry entry;
+            while (drained < MAX_BATCH && (entry = ring.get((int) (next & MASK))) != null) {
+                ring.set((int) (next & MASK), null);
+                next++;
+                tail = next;
+                format(entry, batch);
+                drained++;
+            }
+
+            if (drained == 0) {
+                if (!running && tail >= head.get())
+                    break;
+                LockSupport.parkNanos(100_000_000L);
+                continue;
             }
+
+            System.out.print(batch); // Also print to console
+            channel = write(channel, batch, out, encoder);
+            batch.setLength(0);
         }
+
+        closeQuietly(channel);
     }
 
-    private static synchronized void log(String level, String message) {
-        String timestamp = DATE_FORMAT.format(new Date());
-        String logEntry = String.format("[%s] [%s] %s%n", timestamp, level, message);
+    private static RollingFileChannel openChannel() {
+        try {
+            // Rolls by size and by day; archives are gzipped off this thread
+            return new RollingFileChannel(new File(LOG_FILE).toPath(), MAX_FILE_BYTES, MAX_ARCHIVES);
+        } catch (IOException e) {
+            System.err.println("Failed to open log file " + LOG_FILE + ": " + e.getMessage());
+            return null;
+        }
+    }
 
-        System.out.print(logEntry); // Also print to console
+    private static RollingFileChannel write(RollingFileChannel channel, CharSequence text, ByteBuffer out,
+            CharsetEncoder encoder) {
+        if (channel == null) {
+            channel = openChannel();
+            if (channel == null)
+                return null;
+        }
+        try {
+            CharBuffer in = CharBuffer.wrap(text);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(in, out, true);
+                if (result.isOverflow()) {
+                    drain(channel, out);
+                    continue;
+                }
+                encoder.flush(out);
+                drain(channel, out);
+                return channel;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write log file: " + e.getMessage());
+            out.clear();
+            closeQuietly(channel);
+            return null;
+        }
+    }
 
-        try (FileWriter fw = new FileWriter(LOG_FILE, true);
-                PrintWriter pw = new PrintWriter(fw)) {
-            pw.print(logEntry);
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static void drain(RollingFileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private static void closeQuietly(RollingFileChannel channel) {
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static StringBuilder format(Entry entry, StringBuilder sb) {
+        // Consecutive lines usually share the same second, so reuse the formatted timestamp
+        long second = entry.timestamp / 1000;
+        String timestamp;
+        synchronized (LogService.class) {
+            if (second != cachedSecond) {
+                cachedTimestamp = DATE_FORMAT.format(Instant.ofEpochMilli(entry.timestamp));
+                cachedSecond = second;
+            }
+            timestamp = cachedTimestamp;
+        }
+        sb.append('[').append(timestamp).append("] [").append(entry.level).append("] ")
+                .append(entry.message).append(System.lineSeparator());
+        return sb;
+    }
+
+    private static Level parseLevel(String value, Level fallback) {
+        if (value == null)
+            return fallback;
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
         }
     }
 
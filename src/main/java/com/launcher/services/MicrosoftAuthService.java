@@ -4,25 +4,112 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import com.launcher.util.Constants;
+
+import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class MicrosoftAuthService {
 
     private static final String CLIENT_ID = "00000000402b5328-3049-477e-b468-6f7076080505";
 
-    private static final String DEVICE_CODE_URL = "https://login.microsoftonline.com/consumers/oauth2/v2.0/devicecode";
-    private static final String TOKEN_URL = "https://login.microsoftonline.com/consumers/oauth2/v2.0/token";
-    private static final String XBL_AUTH_URL = "https://user.auth.xboxlive.com/user/authenticate";
-    private static final String XSTS_AUTH_URL = "https://xsts.auth.xboxlive.com/xsts/authorize";
-    private static final String MC_LOGIN_URL = "https://api.minecraftservices.com/authentication/login_with_xbox";
-    private static final String MC_PROFILE_URL = "https://api.minecraftservices.com/minecraft/profile";
+    // A token counts as usable only if it outlives this margin
+    private static final long EXPIRY_MARGIN_MS = 5 * 60 * 1000;
+    // Background refresh runs this far ahead of the Minecraft token's expiry
+    private static final long REFRESH_AHEAD_MS = 30 * 60 * 1000;
+    private static final long RETRY_DELAY_MS = 5 * 60 * 1000;
+
+    private static MicrosoftAuthService instance;
+    // Every call in the chain is bounded; an unreachable endpoint must not stall a refresh forever
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
 
-    private final HttpClient client = HttpClient.newHttpClient();
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).build();
     private final Gson gson = new Gson();
+    private final Endpoints endpoints;
+    private final AuthTokenCache cache;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "auth-refresher");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> pendingRefresh;
+    // Bumped by signOut; a refresh that started under an older generation must not write its
+    // tokens back and sign the user in again
+    private long generation;
+    // Serializes refreshes (Microsoft may rotate the refresh token) without holding the monitor
+    // signOut() needs, so a slow network never blocks the UI thread signing out
+    private final Object refreshLock = new Object();
+
+    // Every URL in the chain, so it can be pointed at a local stub identity server
+    public static class Endpoints {
+        public final String deviceCode;
+        public final String token;
+        public final String xbl;
+        public final String xsts;
+        public final String mcLogin;
+        public final String mcProfile;
+
+        public Endpoints(String deviceCode, String token, String xbl, String xsts, String mcLogin,
+                String mcProfile) {
+            this.deviceCode = deviceCode;
+            this.token = token;
+            this.xbl = xbl;
+            this.xsts = xsts;
+            this.mcLogin = mcLogin;
+            this.mcProfile = mcProfile;
+        }
+
+        // -Dlauncher.auth.baseUrl=http://localhost:8089 routes the whole chain to a stub
+        public static Endpoints defaults() {
+            String base = System.getProperty("launcher.auth.baseUrl");
+            if (base != null) {
+                return at(base);
+            }
+            return new Endpoints(
+                    "https://login.microsoftonline.com/consumers/oauth2/v2.0/devicecode",
+                    "https://login.microsoftonline.com/consumers/oauth2/v2.0/token",
+                    "https://user.auth.xboxlive.com/user/authenticate",
+                    "https://xsts.auth.xboxlive.com/xsts/authorize",
+                    "https://api.minecraftservices.com/authentication/login_with_xbox",
+                    "https://api.minecraftservices.com/minecraft/profile");
+        }
+
+        public static Endpoints at(String baseUrl) {
+            String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+            return new Endpoints(base + "/devicecode", base + "/token", base + "/xbl", base + "/xsts",
+                    base + "/login_with_xbox", base + "/profile");
+        }
+    }
+
+    public MicrosoftAuthService() {
+        this(Endpoints.defaults(), new AuthTokenCache(Paths.get(Constants.GAME_DIR, "auth_tokens.json")));
+    }
+
+    public MicrosoftAuthService(Endpoints endpoints, AuthTokenCache cache) {
+        this.endpoints = endpoints;
+        this.cache = cache;
+    }
+
+    public static synchronized MicrosoftAuthService getInstance() {
+        if (instance == null) {
+            instance = new MicrosoftAuthService();
+        }
+        return instance;
+    }
 
     public static class DeviceCodeResponse {
         public String device_code;
@@ -47,7 +134,8 @@ public class MicrosoftAuthService {
                         "&scope=XboxLive.signin offline_access";
 
                 HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(DEVICE_CODE_URL))
+                        .uri(URI.create(endpoints.deviceCode))
+                        .timeout(REQUEST_TIMEOUT)
                         .header("Content-Type", "application/x-www-form-urlencoded")
                         .POST(HttpRequest.BodyPublishers.ofString(body))
                         .build();
@@ -69,6 +157,7 @@ public class MicrosoftAuthService {
     }
 
     public CompletableFuture<AuthResult> pollForToken(DeviceCodeResponse dc) {
+        long started = currentGeneration();
         return CompletableFuture.supplyAsync(() -> {
             try {
                 long start = System.currentTimeMillis();
@@ -82,7 +171,8 @@ public class MicrosoftAuthService {
                             "&device_code=" + dc.device_code;
 
                     HttpRequest req = HttpRequest.newBuilder()
-                            .uri(URI.create(TOKEN_URL))
+                            .uri(URI.create(endpoints.token))
+                            .timeout(REQUEST_TIMEOUT)
                             .header("Content-Type", "application/x-www-form-urlencoded")
                             .POST(HttpRequest.BodyPublishers.ofString(body))
                             .build();
@@ -99,7 +189,15 @@ public class MicrosoftAuthService {
                         return r;
                     }
 
-                    return performMinecraftLogin(json.get("access_token").getAsString());
+                    // Keep the refresh token so later sign-ins never need the device code again
+                    AuthTokenCache.Tokens tokens = new AuthTokenCache.Tokens();
+                    storeMicrosoftToken(tokens, json);
+                    AuthResult result = refresh(tokens, true, started);
+                    if (result == null) {
+                        result = new AuthResult();
+                        result.error = "Signed out during login";
+                    }
+                    return result;
                 }
 
                 AuthResult r = new AuthResult();
@@ -114,70 +212,221 @@ public class MicrosoftAuthService {
         });
     }
 
-    private AuthResult performMinecraftLogin(String msToken) throws Exception {
-        // XBL
+    // Null if the user signed out since generation was read; nothing is saved then
+    private AuthResult refresh(AuthTokenCache.Tokens tokens, boolean fetchProfile, long generation)
+            throws Exception {
+        synchronized (refreshLock) {
+            if (!isFresh(tokens.mcExpiresAt)) {
+                if (!isFresh(tokens.xstsExpiresAt)) {
+                    if (!isFresh(tokens.xblExpiresAt)) {
+                        if (!isFresh(tokens.msAccessExpiresAt)) {
+                            refreshMicrosoftToken(tokens);
+                        }
+                        authenticateXbl(tokens);
+                    }
+                    authorizeXsts(tokens);
+                }
+                loginMinecraft(tokens);
+            }
+            if (fetchProfile || tokens.username == null) {
+                fetchProfile(tokens);
+            }
+            synchronized (this) {
+                if (generation != this.generation)
+                    return null;
+                cache.save(tokens);
+            }
+        }
+
+        AuthResult r = new AuthResult();
+        r.accessToken = tokens.mcAccessToken;
+        r.username = tokens.username;
+        r.uuid = tokens.uuid;
+        return r;
+    }
+
+    private boolean isFresh(long expiresAt) {
+        return expiresAt - System.currentTimeMillis() > EXPIRY_MARGIN_MS;
+    }
+
+    private void refreshMicrosoftToken(AuthTokenCache.Tokens tokens) throws Exception {
+        if (tokens.msRefreshToken == null) {
+            throw new IOException("Microsoft sign-in expired, please log in again");
+        }
+        String body = "grant_type=refresh_token" +
+                "&client_id=" + CLIENT_ID +
+                "&scope=" + URLEncoder.encode("XboxLive.signin offline_access", StandardCharsets.UTF_8) +
+                "&refresh_token=" + URLEncoder.encode(tokens.msRefreshToken, StandardCharsets.UTF_8);
+
+        HttpRequest req = HttpRequest.newBuilder()
+                .uri(URI.create(endpoints.token))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        JsonObject json = gson.fromJson(checked(client.send(req, HttpResponse.BodyHandlers.ofString()), "token"),
+                JsonObject.class);
+        storeMicrosoftToken(tokens, json);
+    }
+
+    private void storeMicrosoftToken(AuthTokenCache.Tokens tokens, JsonObject json) {
+        tokens.msAccessToken = json.get("access_token").getAsString();
+        tokens.msAccessExpiresAt = expiresIn(json);
+        // Microsoft may rotate the refresh token; keep the old one if none came back
+        if (json.has("refresh_token")) {
+            tokens.msRefreshToken = json.get("refresh_token").getAsString();
+        }
+    }
+
+    private void authenticateXbl(AuthTokenCache.Tokens tokens) throws Exception {
         JsonObject xbl = new JsonObject();
         JsonObject props = new JsonObject();
         props.addProperty("AuthMethod", "RPS");
         props.addProperty("SiteName", "user.auth.xboxlive.com");
-        props.addProperty("RpsTicket", "d=" + msToken);
+        props.addProperty("RpsTicket", "d=" + tokens.msAccessToken);
         xbl.add("Properties", props);
         xbl.addProperty("RelyingParty", "http://auth.xboxlive.com");
         xbl.addProperty("TokenType", "JWT");
 
-        HttpResponse<String> xblRes = postJson(XBL_AUTH_URL, xbl);
-        JsonObject xblJson = gson.fromJson(xblRes.body(), JsonObject.class);
-
-        String xblToken = xblJson.get("Token").getAsString();
-        String uhs = xblJson.getAsJsonObject("DisplayClaims")
+        JsonObject xblJson = gson.fromJson(checked(postJson(endpoints.xbl, xbl), "XBL"), JsonObject.class);
+        tokens.xblToken = xblJson.get("Token").getAsString();
+        tokens.userHash = xblJson.getAsJsonObject("DisplayClaims")
                 .getAsJsonArray("xui").get(0)
                 .getAsJsonObject().get("uhs").getAsString();
+        tokens.xblExpiresAt = notAfter(xblJson);
+        // A new XBL token invalidates everything derived from the old one
+        tokens.xstsExpiresAt = 0;
+    }
 
-        // XSTS
+    private void authorizeXsts(AuthTokenCache.Tokens tokens) throws Exception {
         JsonObject xsts = new JsonObject();
         JsonObject xstsProps = new JsonObject();
         xstsProps.addProperty("SandboxId", "RETAIL");
         JsonArray arr = new JsonArray();
-        arr.add(xblToken);
+        arr.add(tokens.xblToken);
         xstsProps.add("UserTokens", arr);
         xsts.add("Properties", xstsProps);
         xsts.addProperty("RelyingParty", "rp://api.minecraftservices.com/");
         xsts.addProperty("TokenType", "JWT");
 
-        HttpResponse<String> xstsRes = postJson(XSTS_AUTH_URL, xsts);
-        JsonObject xstsJson = gson.fromJson(xstsRes.body(), JsonObject.class);
-
-        String xstsToken = xstsJson.get("Token").getAsString();
+        JsonObject xstsJson = gson.fromJson(checked(postJson(endpoints.xsts, xsts), "XSTS"), JsonObject.class);
+        tokens.xstsToken = xstsJson.get("Token").getAsString();
+        tokens.xstsExpiresAt = notAfter(xstsJson);
+    }
 
-        // Minecraft
+    private void loginMinecraft(AuthTokenCache.Tokens tokens) throws Exception {
         JsonObject mc = new JsonObject();
-        mc.addProperty("identityToken", "XBL3.0 x=" + uhs + ";" + xstsToken);
+        mc.addProperty("identityToken", "XBL3.0 x=" + tokens.userHash + ";" + tokens.xstsToken);
 
-        HttpResponse<String> mcRes = postJson(MC_LOGIN_URL, mc);
-        String mcToken = gson.fromJson(mcRes.body(), JsonObject.class)
-                .get("access_token").getAsString();
+        JsonObject mcJson = gson.fromJson(checked(postJson(endpoints.mcLogin, mc), "Minecraft login"),
+                JsonObject.class);
+        tokens.mcAccessToken = mcJson.get("access_token").getAsString();
+        tokens.mcExpiresAt = expiresIn(mcJson);
+    }
 
-        // Profile
+    private void fetchProfile(AuthTokenCache.Tokens tokens) throws Exception {
         HttpRequest profileReq = HttpRequest.newBuilder()
-                .uri(URI.create(MC_PROFILE_URL))
-                .header("Authorization", "Bearer " + mcToken)
+                .uri(URI.create(endpoints.mcProfile))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Authorization", "Bearer " + tokens.mcAccessToken)
                 .GET().build();
 
         JsonObject profile = gson.fromJson(
-                client.send(profileReq, HttpResponse.BodyHandlers.ofString()).body(),
+                checked(client.send(profileReq, HttpResponse.BodyHandlers.ofString()), "profile"),
                 JsonObject.class);
+        tokens.username = profile.get("name").getAsString();
+        tokens.uuid = profile.get("id").getAsString();
+    }
 
-        AuthResult r = new AuthResult();
-        r.accessToken = mcToken;
-        r.username = profile.get("name").getAsString();
-        r.uuid = profile.get("id").getAsString();
-        return r;
+    private long expiresIn(JsonObject json) {
+        long seconds = json.has("expires_in") ? json.get("expires_in").getAsLong() : 3600;
+        return System.currentTimeMillis() + seconds * 1000;
+    }
+
+    private long notAfter(JsonObject json) {
+        try {
+            return Instant.parse(json.get("NotAfter").getAsString()).toEpochMilli();
+        } catch (Exception e) {
+            // Missing or odd timestamp: assume the shortest lifetime Xbox hands out
+            return System.currentTimeMillis() + 60 * 60 * 1000;
+        }
+    }
+
+    private String checked(HttpResponse<String> res, String step) throws IOException {
+        if (res.statusCode() / 100 != 2) {
+            String body = res.body() == null ? "" : res.body();
+            throw new IOException(step + " request failed (HTTP " + res.statusCode() + "): "
+                    + body.substring(0, Math.min(200, body.length())));
+        }
+        return res.body();
+    }
+
+    // Keeps the session's Minecraft token valid without ever blocking a launch on the network.
+    public void startBackgroundRefresh() {
+        AuthTokenCache.Tokens tokens = cache.get();
+        if (tokens == null || tokens.msRefreshToken == null)
+            return;
+        scheduleRefresh(Math.max(0, tokens.mcExpiresAt - REFRESH_AHEAD_MS - System.currentTimeMillis()));
+    }
+
+    private synchronized void scheduleRefresh(long delayMs) {
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+        }
+        pendingRefresh = refresher.schedule(this::refreshInBackground, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private void refreshInBackground() {
+        long started;
+        AuthTokenCache.Tokens tokens;
+        synchronized (this) {
+            started = generation;
+            tokens = cache.get();
+        }
+        if (tokens == null || tokens.msRefreshToken == null)
+            return;
+        // Force the chain early: the point is to renew before anything needs the token
+        if (tokens.mcExpiresAt - System.currentTimeMillis() < REFRESH_AHEAD_MS) {
+            tokens.mcExpiresAt = 0;
+        }
+        try {
+            AuthResult result = refresh(tokens, false, started);
+            if (result == null)
+                return;
+            SessionService session = SessionService.getInstance();
+            if (session.isLoggedIn() && result.uuid.equals(session.getUuid())) {
+                session.loginMicrosoft(result.username, result.uuid, result.accessToken);
+            }
+            LogService.info("Refreshed Minecraft session for " + result.username);
+            startBackgroundRefresh();
+        } catch (Exception e) {
+            synchronized (this) {
+                if (started != generation)
+                    return;
+            }
+            LogService.warn("Background session refresh failed, retrying later: " + e.getMessage());
+            scheduleRefresh(RETRY_DELAY_MS);
+        }
+    }
+
+    public synchronized void signOut() {
+        generation++;
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+            pendingRefresh = null;
+        }
+        cache.clear();
     }
 
     private HttpResponse<String> postJson(String url, JsonObject json) throws Exception {
         return client.send(
                 HttpRequest.newBuilder()
                         .uri(URI.create(url))
+                        .timeout(REQUEST_TIMEOUT)
                         .header("Content-Type", "application/json")
                         .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(json)))
                         .build(),
@@ -0,0 +1,155 @@
+package com.launcher.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optional page-cache prewarm: reads an instance's classpath and mod jars ahead of the JVM so its
+// class loading hits memory instead of a cold (often spinning) disk. Plain sequential reads rather
+// than mmap, because a mapped jar stays locked on Windows until the buffer is collected.
+public class PrewarmService {
+
+    // The cache is still warm for a while after a pass; don't re-read on every dashboard refresh
+    private static final long WARM_FOR_MS = 10 * 60_000;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    public static class Result {
+        public final int files;
+        public final long bytes;
+        public final long millis;
+
+        Result(int files, long bytes, long millis) {
+            this.files = files;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return files + " files, " + bytes / (1024 * 1024) + " MB in " + millis + " ms";
+        }
+    }
+
+    private static PrewarmService instance;
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal
+            .withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    // Few low-priority threads: enough to keep an SSD queue busy without starving the UI or a
+    // download that's running at the same time
+    private final ExecutorService pool = Executors.newFixedThreadPool(
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), r -> {
+                Thread t = new Thread(r, "prewarm");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+    private final Map<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Long> warmedAt = new ConcurrentHashMap<>();
+
+    private PrewarmService() {
+    }
+
+    public static synchronized PrewarmService getInstance() {
+        if (instance == null) {
+            instance = new PrewarmService();
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return SettingsService.getInstance().isPrewarm();
+    }
+
+    // Dashboard entry point: warms what the instance's last launch used, plus its mods
+    public CompletableFuture<Result> prewarmInstance(VersionInfo version) {
+        GameLaunchService launcher = new GameLaunchService();
+        LaunchPlan plan = LaunchPlan.load(launcher.getInstanceDir(version));
+        if (plan == null || plan.classpath == null)
+            return CompletableFuture.completedFuture(null);
+        return prewarm(version.getId(), plan.classpath, launcher.getWorkingDir(version));
+    }
+
+    public CompletableFuture<Result> prewarm(String instanceId, List<String> classpath, File workingDir) {
+        if (!isEnabled())
+            return CompletableFuture.completedFuture(null);
+        Long last = warmedAt.get(instanceId);
+        if (last != null && System.currentTimeMillis() - last < WARM_FOR_MS)
+            return CompletableFuture.completedFuture(null);
+
+        CompletableFuture<Result> running = inFlight.get(instanceId);
+        if (running != null)
+            return running;
+
+        Set<File> files = new LinkedHashSet<>();
+        for (String entry : classpath) {
+            files.add(new File(entry));
+        }
+        File[] mods = new File(workingDir, "mods").listFiles((dir, name) -> name.endsWith(".jar"));
+        if (mods != null) {
+            files.addAll(List.of(mods));
+        }
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(instanceId, future) != null)
+            return inFlight.get(instanceId);
+        run(new ArrayList<>(files)).whenComplete((result, error) -> {
+            inFlight.remove(instanceId);
+            if (result != null) {
+                warmedAt.put(instanceId, System.currentTimeMillis());
+                LogService.info("Prewarmed " + instanceId + ": " + result);
+                future.complete(result);
+            } else {
+                future.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
+
+    private CompletableFuture<Result> run(List<File> files) {
+        long start = System.nanoTime();
+        AtomicLong bytes = new AtomicLong();
+        AtomicInteger count = new AtomicInteger();
+        List<CompletableFuture<Void>> reads = new ArrayList<>();
+        for (File file : files) {
+            reads.add(CompletableFuture.runAsync(() -> {
+                long read = readThrough(file);
+                if (read >= 0) {
+                    bytes.addAndGet(read);
+                    count.incrementAndGet();
+                }
+            }, pool));
+        }
+        return CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> new Result(count.get(), bytes.get(), (System.nanoTime() - start) / 1_000_000));
+    }
+
+    // Returns bytes read, or -1 if the file isn't there
+    private long readThrough(File file) {
+        if (!file.isFile())
+            return -1;
+        ByteBuffer buffer = BUFFERS.get();
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int n;
+            while ((n = channel.read(buffer.clear())) > 0) {
+                total += n;
+            }
+        } catch (IOException e) {
+            LogService.debug("Prewarm skipped " + file + ": " + e.getMessage());
+            return -1;
+        }
+        return total;
+    }
+}
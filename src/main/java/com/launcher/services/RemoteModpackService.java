@@ -12,6 +12,7 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -79,7 +80,12 @@ public class RemoteModpackService {
 
     public CompletableFuture<Boolean> installModpack(RemoteModpack modpack,
             java.util.function.Consumer<String> statusCallback) {
-        return CompletableFuture.supplyAsync(() -> {
+        return installModpack(modpack, statusCallback, new CancellationToken());
+    }
+
+    public CompletableFuture<Boolean> installModpack(RemoteModpack modpack,
+            java.util.function.Consumer<String> statusCallback, CancellationToken token) {
+        return token.bind(CompletableFuture.supplyAsync(() -> {
             File destDir = new File(modpacksDir, modpack.id);
             File zipFile = new File(modpacksDir, modpack.id + ".zip");
             boolean success = false;
@@ -91,15 +97,17 @@ public class RemoteModpackService {
                 }
                 destDir.mkdirs();
 
-                downloadFile(modpack.downloadUrl, zipFile);
+                downloadFile(modpack.downloadUrl, zipFile, token);
 
+                token.throwIfCancelled();
                 statusCallback.accept("Extracting...");
 
                 // Use robust extraction logic
                 com.launcher.services.ModpackService.ModpackType type = new com.launcher.services.ModpackService()
                         .detectModpackType(zipFile);
-                extractModpack(zipFile, destDir, type);
+                extractModpack(zipFile, destDir, type, token);
 
+                token.throwIfCancelled();
                 statusCallback.accept("Analyzing...");
                 // Analyze modpack to get version info
                 com.launcher.services.ModpackService modpackService = new com.launcher.services.ModpackService();
@@ -113,7 +121,7 @@ public class RemoteModpackService {
                     String fabricUrl = "https://meta.fabricmc.net/v2/versions/loader/" + info.minecraftVersion
                             + "/" + info.modloaderVersion + "/profile/json";
                     statusCallback.accept("Downloading Fabric profile...");
-                    downloadFile(fabricUrl, jsonFile);
+                    downloadFile(fabricUrl, jsonFile, token);
 
                     // Read and modify to ensure ID is correct
                     JsonObject json;
@@ -148,6 +156,10 @@ public class RemoteModpackService {
                 success = true;
                 statusCallback.accept("Installed!");
                 return true;
+            } catch (CancellationException e) {
+                LogService.info("Installation cancelled: " + modpack.name);
+                statusCallback.accept("Cancelled");
+                return false;
             } catch (Exception e) {
                 LogService.error("Failed to install modpack: " + modpack.name, e);
                 statusCallback.accept("Failed: " + e.getMessage());
@@ -160,11 +172,11 @@ public class RemoteModpackService {
                     deleteDirectory(destDir);
                 }
             }
-        });
+        }));
     }
 
-    private void extractModpack(File zipFile, File destDir, com.launcher.services.ModpackService.ModpackType type)
-            throws Exception {
+    private void extractModpack(File zipFile, File destDir, com.launcher.services.ModpackService.ModpackType type,
+            CancellationToken token) throws Exception {
         // 1. Analyze Zip Structure to find Root Prefix
         String rootPrefix = null;
         try (java.util.zip.ZipFile zf = new java.util.zip.ZipFile(zipFile)) {
@@ -206,6 +218,7 @@ public class RemoteModpackService {
         try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
             ZipEntry entry;
             while ((entry = zis.getNextEntry()) != null) {
+                token.throwIfCancelled();
                 String entryName = entry.getName().replace("\\", "/");
 
                 if (entryName.startsWith("__MACOSX") || entryName.endsWith(".DS_Store"))
@@ -256,13 +269,14 @@ public class RemoteModpackService {
             com.launcher.services.ModpackService modpackService = new com.launcher.services.ModpackService();
             List<com.launcher.services.ModpackService.ModpackFile> files = modpackService.getModpackFiles(zipFile);
             for (com.launcher.services.ModpackService.ModpackFile mpFile : files) {
+                token.throwIfCancelled();
                 if (!mpFile.downloads.isEmpty()) {
                     File target = new File(destDir, mpFile.path);
                     if (!target.exists()) {
                         target.getParentFile().mkdirs();
                         try {
-                            downloadFile(mpFile.downloads.get(0), target);
-                        } catch (Exception e) {
+                            downloadFile(mpFile.downloads.get(0), target, token);
+                        } catch (IOException e) {
                             LogService.error("Failed to download mod: " + mpFile.path);
                         }
                     }
@@ -281,19 +295,35 @@ public class RemoteModpackService {
         directory.delete();
     }
 
-    private void downloadFile(String urlStr, File target) throws IOException {
+    private void downloadFile(String urlStr, File target, CancellationToken token) throws IOException {
+        token.throwIfCancelled();
         // Handle potential spaces in urlStr
         String encodedUrl = urlStr.replace(" ", "%20");
         java.net.URL url = java.net.URI.create(encodedUrl).toURL();
-        try (java.io.BufferedInputStream in = new java.io.BufferedInputStream(url.openStream());
+        java.net.URLConnection conn = url.openConnection();
+        Runnable abort = () -> {
+            if (conn instanceof HttpURLConnection) {
+                ((HttpURLConnection) conn).disconnect();
+            }
+        };
+        CancellationToken.Registration reg = token.onCancel(abort);
+        try (java.io.BufferedInputStream in = new java.io.BufferedInputStream(conn.getInputStream());
                 java.io.FileOutputStream fileOutputStream = new java.io.FileOutputStream(target)) {
-            byte dataBuffer[] = new byte[1024];
+            byte dataBuffer[] = new byte[8192];
             int bytesRead;
-            while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
+            while ((bytesRead = in.read(dataBuffer, 0, dataBuffer.length)) != -1) {
+                token.throwIfCancelled();
                 fileOutputStream.write(dataBuffer, 0, bytesRead);
             }
+        } catch (CancellationException e) {
+            target.delete();
+            throw e;
         } catch (Exception e) {
+            target.delete();
+            token.throwIfCancelled();
             throw new IOException("Failed to download from " + urlStr + ": " + e.getMessage(), e);
+        } finally {
+            reg.close();
         }
     }
 }
@@ -0,0 +1,410 @@
+package com.launcher.services;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.launcher.util.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Installs Java runtimes from Mojang's per-file java-runtime manifests (path -> size, sha1, url).
+// Files are fetched in parallel and hash-checked; afterwards each file's size + mtime is recorded
+// in the local state store so the launch-time check is a stat per file, and repair re-fetches
+// only the files that fail it.
+public class RuntimeManifestInstaller {
+
+    public static final String DEFAULT_INDEX_URL = "https://launchermeta.mojang.com/v1/products/java-runtime/2ec0cc96c44e5a76b9c8b7c39df7210883d12871/all.json";
+    private static final String LOCAL_MANIFEST = "manifest.json";
+    private static final int FETCH_THREADS = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String indexUrl;
+    private final File runtimesDir;
+    private final Gson gson = new Gson();
+
+    private static class FileTask {
+        final File target;
+        final String url;
+        final String sha1;
+        final long size;
+        final boolean executable;
+
+        FileTask(File target, String url, String sha1, long size, boolean executable) {
+            this.target = target;
+            this.url = url;
+            this.sha1 = sha1;
+            this.size = size;
+            this.executable = executable;
+        }
+    }
+
+    // -Dlauncher.runtime.indexUrl points the installer at a local manifest server
+    public RuntimeManifestInstaller() {
+        this(System.getProperty("launcher.runtime.indexUrl", DEFAULT_INDEX_URL),
+                new File(Constants.RUNTIMES_DIR));
+    }
+
+    public RuntimeManifestInstaller(String indexUrl, File runtimesDir) {
+        this.indexUrl = indexUrl;
+        this.runtimesDir = runtimesDir;
+    }
+
+    public File getComponentDir(String component) {
+        return new File(runtimesDir, component);
+    }
+
+    // Returns the java executable, or null if the component isn't published for this platform.
+    public String install(String component, Consumer<String> status, CancellationToken token) throws IOException {
+        token.throwIfCancelled();
+        status.accept("Fetching Java runtime manifest...");
+        JsonObject index = fetchJson(indexUrl, token);
+        JsonObject platform = index.getAsJsonObject(platformKey());
+        JsonArray entries = platform != null ? platform.getAsJsonArray(component) : null;
+        if (entries == null || entries.size() == 0) {
+            LogService.info("Java runtime " + component + " is not available for " + platformKey());
+            return null;
+        }
+        JsonObject entry = entries.get(0).getAsJsonObject();
+        String manifestUrl = entry.getAsJsonObject("manifest").get("url").getAsString();
+        String versionName = entry.getAsJsonObject("version").get("name").getAsString();
+        JsonObject manifest = fetchJson(manifestUrl, token);
+
+        // Fetched into a staging dir and renamed into place, so a failed or cancelled install never
+        // leaves a half-populated tree that looks like a runtime
+        File dir = getComponentDir(component);
+        File staging = new File(runtimesDir, component + ".installing");
+        LocalStateStore store = LocalStateStore.getInstance();
+        List<String> files = fileEntries(manifest);
+        try {
+            deleteTree(staging);
+            staging.mkdirs();
+            String javaRelative = sync(staging, manifest, status, token);
+            if (javaRelative == null) {
+                throw new IOException("Runtime manifest for " + component + " has no bin/"
+                        + JavaRuntimeRegistry.JAVA_EXECUTABLE);
+            }
+
+            Files.write(new File(staging, LOCAL_MANIFEST).toPath(),
+                    gson.toJson(manifest).getBytes(StandardCharsets.UTF_8));
+            JavaRuntimeService.RuntimeManifest runtime = new JavaRuntimeService.RuntimeManifest();
+            runtime.javaPath = javaRelative;
+            runtime.major = JavaRuntimeRegistry.parseMajor(versionName);
+            runtime.source = manifestUrl;
+            runtime.installedAt = System.currentTimeMillis();
+            Files.write(new File(staging, "runtime.json").toPath(),
+                    gson.toJson(runtime).getBytes(StandardCharsets.UTF_8));
+
+            // Leftovers of an interrupted install from before staging existed
+            deleteTree(dir);
+            List<String> validated = new ArrayList<>();
+            for (String name : files) {
+                if (store.isValidated(new File(staging, name))) {
+                    validated.add(name);
+                }
+            }
+            try {
+                Files.move(staging.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging.toPath(), dir.toPath());
+            }
+            // The rename keeps size and mtime, so the records carry over to the final paths and the
+            // next repair() is a stat per file instead of hashing the whole runtime again
+            for (String name : validated) {
+                store.forgetValidation(new File(staging, name));
+                store.recordValidated(new File(dir, name));
+            }
+            return new File(dir, javaRelative).getAbsolutePath();
+        } catch (IOException | RuntimeException e) {
+            deleteTree(staging);
+            for (String name : files) {
+                store.forgetValidation(new File(staging, name));
+            }
+            throw e;
+        }
+    }
+
+    private static List<String> fileEntries(JsonObject manifest) {
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, com.google.gson.JsonElement> e : manifest.getAsJsonObject("files").entrySet()) {
+            if ("file".equals(e.getValue().getAsJsonObject().get("type").getAsString())) {
+                names.add(e.getKey());
+            }
+        }
+        return names;
+    }
+
+    // Launch-time check against the saved manifest. Returns how many files had to be re-fetched.
+    public int repair(String component, Consumer<String> status, CancellationToken token) throws IOException {
+        File dir = getComponentDir(component);
+        File manifestFile = new File(dir, LOCAL_MANIFEST);
+        if (!manifestFile.isFile())
+            return 0;
+        JsonObject manifest;
+        try (Reader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            manifest = gson.fromJson(reader, JsonObject.class);
+        }
+        long start = System.currentTimeMillis();
+        List<FileTask> damaged = collectDamaged(dir, manifest);
+        if (damaged.isEmpty()) {
+            LogService.debug("Java runtime " + component + " verified in " + (System.currentTimeMillis() - start)
+                    + " ms");
+            return 0;
+        }
+        LogService.warn("Repairing " + damaged.size() + " damaged files in Java runtime " + component);
+        fetchAll(damaged, status, token);
+        return damaged.size();
+    }
+
+    private String sync(File dir, JsonObject manifest, Consumer<String> status, CancellationToken token)
+            throws IOException {
+        String javaRelative = null;
+        List<String[]> links = new ArrayList<>();
+        for (Map.Entry<String, com.google.gson.JsonElement> e : manifest.getAsJsonObject("files").entrySet()) {
+            JsonObject file = e.getValue().getAsJsonObject();
+            File target = resolve(dir, e.getKey());
+            switch (file.get("type").getAsString()) {
+                case "directory":
+                    target.mkdirs();
+                    break;
+                case "link":
+                    links.add(new String[] { e.getKey(), file.get("target").getAsString() });
+                    break;
+                case "file":
+                    Path path = Paths.get(e.getKey());
+                    if (path.getFileName().toString().equals(JavaRuntimeRegistry.JAVA_EXECUTABLE)
+                            && path.getParent() != null && path.getParent().getFileName().toString().equals("bin")
+                            && (javaRelative == null || e.getKey().length() < javaRelative.length())) {
+                        javaRelative = e.getKey();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        fetchAll(collectDamaged(dir, manifest), status, token);
+
+        for (String[] link : links) {
+            Path target = resolve(dir, link[0]).toPath();
+            Path resolved = target.getParent().resolve(link[1]).normalize();
+            if (!resolved.startsWith(dir.toPath()) || JavaRuntimeRegistry.WINDOWS)
+                continue;
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            Files.createSymbolicLink(target, Paths.get(link[1]));
+        }
+        return javaRelative;
+    }
+
+    // Fast path is a size + mtime stat against the validation record. Files without a record
+    // (first install over an existing tree) are hashed once and then recorded.
+    private List<FileTask> collectDamaged(File dir, JsonObject manifest) throws IOException {
+        LocalStateStore store = LocalStateStore.getInstance();
+        List<FileTask> damaged = new ArrayList<>();
+        for (Map.Entry<String, com.google.gson.JsonElement> e : manifest.getAsJsonObject("files").entrySet()) {
+            JsonObject file = e.getValue().getAsJsonObject();
+            if (!"file".equals(file.get("type").getAsString()))
+                continue;
+            JsonObject raw = file.getAsJsonObject("downloads").getAsJsonObject("raw");
+            FileTask task = new FileTask(resolve(dir, e.getKey()), raw.get("url").getAsString(),
+                    raw.get("sha1").getAsString(), raw.get("size").getAsLong(),
+                    file.has("executable") && file.get("executable").getAsBoolean());
+            if (store.isValidated(task.target))
+                continue;
+            if (task.target.isFile() && task.target.length() == task.size && task.sha1.equals(sha1(task.target))) {
+                store.recordValidated(task.target);
+                continue;
+            }
+            damaged.add(task);
+        }
+        return damaged;
+    }
+
+    private void fetchAll(List<FileTask> tasks, Consumer<String> status, CancellationToken token) throws IOException {
+        if (tasks.isEmpty())
+            return;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(FETCH_THREADS, tasks.size()), r -> {
+            Thread t = new Thread(r, "runtime-fetch");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger done = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        CancellationToken.Registration reg = null;
+        try {
+            for (FileTask task : tasks) {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        fetch(task, token);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                    int c = done.incrementAndGet();
+                    if (c % 10 == 0 || c == tasks.size()) {
+                        status.accept("Installing Java runtime (" + c + "/" + tasks.size() + ")...");
+                    }
+                }, pool));
+            }
+            // Registered once every task is submitted, so the listener never sees the list change
+            reg = token.onCancel(() -> futures.forEach(f -> f.cancel(true)));
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            token.throwIfCancelled();
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        } catch (CancellationException e) {
+            token.throwIfCancelled();
+            throw e;
+        } finally {
+            if (reg != null) {
+                reg.close();
+            }
+            pool.shutdownNow();
+        }
+    }
+
+    private void fetch(FileTask task, CancellationToken token) throws IOException {
+        token.throwIfCancelled();
+        task.target.getParentFile().mkdirs();
+        File partFile = new File(task.target.getParentFile(), task.target.getName() + ".part");
+        HttpURLConnection conn = (HttpURLConnection) new URL(task.url).openConnection();
+        CancellationToken.Registration reg = token.onCancel(conn::disconnect);
+        try {
+            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Server returned HTTP response code: " + conn.getResponseCode() + " for URL: "
+                        + task.url);
+            }
+            MessageDigest digest = sha1Digest();
+            try (InputStream in = new BufferedInputStream(conn.getInputStream(), BUFFER_SIZE);
+                    OutputStream out = Files.newOutputStream(partFile.toPath())) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    token.throwIfCancelled();
+                    digest.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                }
+            }
+            String actual = hex(digest.digest());
+            if (!actual.equals(task.sha1)) {
+                throw new IOException("Checksum mismatch for " + task.target.getName() + ": expected " + task.sha1
+                        + ", got " + actual);
+            }
+            Files.move(partFile.toPath(), task.target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (task.executable) {
+                task.target.setExecutable(true, false);
+            }
+            LocalStateStore.getInstance().recordValidated(task.target);
+        } catch (IOException | RuntimeException e) {
+            partFile.delete();
+            token.throwIfCancelled();
+            throw e;
+        } finally {
+            reg.close();
+        }
+    }
+
+    private JsonObject fetchJson(String url, CancellationToken token) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        CancellationToken.Registration reg = token.onCancel(conn::disconnect);
+        try (Reader reader = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, JsonObject.class);
+        } catch (IOException e) {
+            token.throwIfCancelled();
+            throw e;
+        } finally {
+            reg.close();
+        }
+    }
+
+    private File resolve(File dir, String name) throws IOException {
+        File target = new File(dir, name);
+        if (!target.toPath().normalize().startsWith(dir.toPath().normalize())) {
+            throw new IOException("Entry is outside of the runtime dir: " + name);
+        }
+        return target;
+    }
+
+    private static void deleteTree(File dir) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (!Files.isSymbolicLink(child.toPath())) {
+                    deleteTree(child);
+                }
+                child.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static String sha1(File file) throws IOException {
+        MessageDigest digest = sha1Digest();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    // Platform keys used by Mojang's java-runtime index
+    static String platformKey() {
+        String os = System.getProperty("os.name").toLowerCase();
+        String arch = JavaRuntimeRegistry.hostArch();
+        if (os.contains("win")) {
+            return arch.equals("x86") ? "windows-x86" : arch.equals("aarch64") ? "windows-arm64" : "windows-x64";
+        }
+        if (os.contains("mac")) {
+            return arch.equals("aarch64") ? "mac-os-arm64" : "mac-os";
+        }
+        return arch.equals("x86") ? "linux-i386" : "linux";
+    }
+}
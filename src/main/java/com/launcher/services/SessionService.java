@@ -7,9 +7,7 @@ public class SessionService {
     private String accessToken;
     private boolean isOffline;
 
-    private final com.google.gson.Gson gson = new com.google.gson.Gson();
-    private final java.io.File sessionFile = new java.io.File(
-            System.getenv("APPDATA") + "/.minecraft/launcher_session.json");
+    private final LocalStateStore store = LocalStateStore.getInstance();
 
     private SessionService() {
         loadSession();
@@ -40,33 +38,25 @@ public class SessionService {
         this.currentUser = null;
         this.uuid = null;
         this.accessToken = null;
-        if (sessionFile.exists()) {
-            sessionFile.delete();
+        store.remove(LocalStateStore.SESSION);
+        // Pre-store session file may still hold a token
+        java.io.File legacyFile = new java.io.File(System.getenv("APPDATA") + "/.minecraft/launcher_session.json");
+        if (legacyFile.exists()) {
+            legacyFile.delete();
         }
     }
 
     private void saveSession() {
-        try (java.io.FileWriter writer = new java.io.FileWriter(sessionFile)) {
-            SessionData data = new SessionData(currentUser, uuid, accessToken, isOffline);
-            gson.toJson(data, writer);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        store.putJson(LocalStateStore.SESSION, new SessionData(currentUser, uuid, accessToken, isOffline));
     }
 
     private void loadSession() {
-        if (!sessionFile.exists())
-            return;
-        try (java.io.FileReader reader = new java.io.FileReader(sessionFile)) {
-            SessionData data = gson.fromJson(reader, SessionData.class);
-            if (data != null) {
-                this.currentUser = data.username;
-                this.uuid = data.uuid;
-                this.accessToken = data.accessToken;
-                this.isOffline = data.isOffline;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        SessionData data = store.getJson(LocalStateStore.SESSION, SessionData.class);
+        if (data != null) {
+            this.currentUser = data.username;
+            this.uuid = data.uuid;
+            this.accessToken = data.accessToken;
+            this.isOffline = data.isOffline;
         }
     }
 
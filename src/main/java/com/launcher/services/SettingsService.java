@@ -1,115 +1,183 @@
 package com.launcher.services;
 
-import com.launcher.util.Constants;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.util.Properties;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SettingsService {
     private static SettingsService instance;
-    private final Properties props = new Properties();
-    private final File settingsFile = new File(Constants.GAME_DIR + "/launcher_settings.properties");
+    // Reads never lock; setters only touch memory and hand the map to the local state store, which
+    // serializes and writes it in the background
+    private final Map<String, String> values = new ConcurrentHashMap<>();
+    private final LocalStateStore store = LocalStateStore.getInstance();
 
     private SettingsService() {
-        load();
+        Map<String, String> saved = store.getJson(LocalStateStore.SETTINGS,
+                LocalStateStore.mapOf(String.class, String.class));
+        if (saved != null) {
+            values.putAll(saved);
+        }
     }
 
-    public static SettingsService getInstance() {
+    public static synchronized SettingsService getInstance() {
         if (instance == null) {
             instance = new SettingsService();
         }
         return instance;
     }
 
-    private void load() {
-        try {
-            if (settingsFile.exists()) {
-                props.load(new FileReader(settingsFile));
-            }
-        } catch (Exception e) {
-            LogService.error("Failed to load settings from " + settingsFile.getAbsolutePath(), e);
-        }
+    // Writes immediately if anything changed; called on shutdown.
+    public void flush() {
+        store.flush();
     }
 
     public void save() {
+        store.putJsonDeferred(LocalStateStore.SETTINGS, values);
+    }
+
+    private void set(String key, String value) {
+        if (value == null) {
+            if (values.remove(key) == null)
+                return;
+        } else if (value.equals(values.put(key, value))) {
+            return;
+        }
+        save();
+    }
+
+    private String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    private int getInt(String key, int defaultValue) {
         try {
-            settingsFile.getParentFile().mkdirs();
-            props.store(new FileWriter(settingsFile), "Antigravity Launcher Settings");
-        } catch (Exception e) {
-            LogService.error("Failed to save settings to " + settingsFile.getAbsolutePath(), e);
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
         }
     }
 
     public String getJavaPath() {
-        return props.getProperty("javaPath", "java");
+        return get("javaPath", "java");
     }
 
     public void setJavaPath(String path) {
-        props.setProperty("javaPath", path);
-        save();
+        set("javaPath", path);
     }
 
     public int getRam() {
-        return Integer.parseInt(props.getProperty("ram", "4096"));
+        return getInt("ram", 4096);
     }
 
     public void setRam(int ram) {
-        props.setProperty("ram", String.valueOf(ram));
-        save();
+        set("ram", String.valueOf(ram));
     }
 
     public String getLastVersionId() {
-        return props.getProperty("lastVersionId");
+        return get("lastVersionId", null);
     }
 
     public void setLastVersionId(String versionId) {
-        props.setProperty("lastVersionId", versionId);
-        save();
+        set("lastVersionId", versionId);
     }
 
     public String getRepoUrl() {
-        return props.getProperty("repoUrl", "https://modpack-server.vercel.app/modpacks.json");
+        return get("repoUrl", "https://modpack-server.vercel.app/modpacks.json");
     }
 
     public void setRepoUrl(String url) {
-        props.setProperty("repoUrl", url);
-        save();
+        set("repoUrl", url);
     }
 
     public int getResolutionWidth() {
-        return Integer.parseInt(props.getProperty("resolutionWidth", "854"));
+        return getInt("resolutionWidth", 854);
     }
 
     public void setResolutionWidth(int width) {
-        props.setProperty("resolutionWidth", String.valueOf(width));
-        save();
+        set("resolutionWidth", String.valueOf(width));
     }
 
     public int getResolutionHeight() {
-        return Integer.parseInt(props.getProperty("resolutionHeight", "480"));
+        return getInt("resolutionHeight", 480);
     }
 
     public void setResolutionHeight(int height) {
-        props.setProperty("resolutionHeight", String.valueOf(height));
-        save();
+        set("resolutionHeight", String.valueOf(height));
     }
 
     public boolean isFullScreen() {
-        return Boolean.parseBoolean(props.getProperty("fullScreen", "false"));
+        return Boolean.parseBoolean(get("fullScreen", "false"));
     }
 
     public void setFullScreen(boolean fullScreen) {
-        props.setProperty("fullScreen", String.valueOf(fullScreen));
-        save();
+        set("fullScreen", String.valueOf(fullScreen));
     }
 
     public boolean isAutoClose() {
-        return Boolean.parseBoolean(props.getProperty("autoClose", "false"));
+        return Boolean.parseBoolean(get("autoClose", "false"));
     }
 
     public void setAutoClose(boolean autoClose) {
-        props.setProperty("autoClose", String.valueOf(autoClose));
-        save();
+        set("autoClose", String.valueOf(autoClose));
+    }
+
+    // OFF, RECOMMEND or APPLY; see HeapAdvisorService
+    public String getHeapMode() {
+        return get("heapMode", "OFF");
+    }
+
+    public void setHeapMode(String mode) {
+        set("heapMode", mode);
+    }
+
+    // Global JvmProfileService.Preset name; instances may override it
+    public String getJvmProfile() {
+        return get("jvmProfile", "DEFAULT");
+    }
+
+    public void setJvmProfile(String profile) {
+        set("jvmProfile", profile);
+    }
+
+    public boolean isClassDataSharing() {
+        return Boolean.parseBoolean(get("classDataSharing", "false"));
+    }
+
+    public void setClassDataSharing(boolean enabled) {
+        set("classDataSharing", String.valueOf(enabled));
+    }
+
+    public boolean isPrewarm() {
+        return Boolean.parseBoolean(get("prewarm", "false"));
+    }
+
+    public void setPrewarm(boolean enabled) {
+        set("prewarm", String.valueOf(enabled));
+    }
+
+    // JarOptimizerService.Mode name
+    public String getStoredJarsMode() {
+        return get("storedJars", "OFF");
+    }
+
+    public void setStoredJarsMode(String mode) {
+        set("storedJars", mode);
+    }
+
+    // LibraryResolver.Rule name used when inherited profiles declare the same library
+    public String getLibraryRule() {
+        return get("libraryRule", "HIGHEST");
+    }
+
+    public void setLibraryRule(String rule) {
+        set("libraryRule", rule);
+    }
+
+    // Size the shared caches may reach before unreachable files are collected at startup; 0 = never
+    public int getCacheBudgetGb() {
+        return getInt("cacheBudgetGb", 0);
+    }
+
+    public void setCacheBudgetGb(int gb) {
+        set("cacheBudgetGb", String.valueOf(gb));
     }
 }
@@ -0,0 +1,370 @@
+package com.launcher.services;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Typed, immutable view of a version JSON. Only the fields the launcher uses are kept; everything
+// else is skipped by the streaming readers without building a tree. merge() layers a child over
+// its inheritsFrom parent: scalars from the child win, libraries are the child's then the parent's.
+public final class VersionProfile {
+
+    public static final class Download {
+        public final String path;
+        public final String url;
+        public final String sha1;
+        public final long size;
+
+        Download(String path, String url, String sha1, long size) {
+            this.path = path;
+            this.url = url;
+            this.sha1 = sha1;
+            this.size = size;
+        }
+    }
+
+    public static final class Rule {
+        public final String action;
+        // Null for a rule that applies everywhere
+        public final String osName;
+
+        Rule(String action, String osName) {
+            this.action = action;
+            this.osName = osName;
+        }
+    }
+
+    public static final class Library {
+        public final String name;
+        // Maven repository for libraries without a downloads block
+        public final String url;
+        public final Download artifact;
+        public final Map<String, Download> classifiers;
+        public final List<Rule> rules;
+        // inheritsFrom hops from the launched version to the profile that declared this library
+        public final int depth;
+
+        Library(String name, String url, Download artifact, Map<String, Download> classifiers, List<Rule> rules,
+                int depth) {
+            this.name = name;
+            this.url = url;
+            this.artifact = artifact;
+            this.classifiers = Collections.unmodifiableMap(classifiers);
+            this.rules = Collections.unmodifiableList(rules);
+            this.depth = depth;
+        }
+
+        Library atDepth(int depth) {
+            return depth == this.depth ? this : new Library(name, url, artifact, classifiers, rules, depth);
+        }
+    }
+
+    public static final class AssetIndexRef {
+        public final String id;
+        public final String url;
+        public final String sha1;
+        public final long size;
+        public final long totalSize;
+
+        AssetIndexRef(String id, String url, String sha1, long size, long totalSize) {
+            this.id = id;
+            this.url = url;
+            this.sha1 = sha1;
+            this.size = size;
+            this.totalSize = totalSize;
+        }
+    }
+
+    public static final class JavaVersion {
+        public final String component;
+        public final int majorVersion;
+
+        JavaVersion(String component, int majorVersion) {
+            this.component = component;
+            this.majorVersion = majorVersion;
+        }
+    }
+
+    public final String id;
+    public final String inheritsFrom;
+    public final String type;
+    public final String mainClass;
+    public final String minecraftArguments;
+    // Modern argument lists are passed through untyped; the launcher builds its own arguments
+    public final JsonElement arguments;
+    public final AssetIndexRef assetIndex;
+    public final JavaVersion javaVersion;
+    public final Download client;
+    public final List<Library> libraries;
+
+    VersionProfile(String id, String inheritsFrom, String type, String mainClass, String minecraftArguments,
+            JsonElement arguments, AssetIndexRef assetIndex, JavaVersion javaVersion, Download client,
+            List<Library> libraries) {
+        this.id = id;
+        this.inheritsFrom = inheritsFrom;
+        this.type = type;
+        this.mainClass = mainClass;
+        this.minecraftArguments = minecraftArguments;
+        this.arguments = arguments;
+        this.assetIndex = assetIndex;
+        this.javaVersion = javaVersion;
+        this.client = client;
+        this.libraries = Collections.unmodifiableList(libraries);
+    }
+
+    // The child's own libraries keep depth 0; the parent's (already merged with its own parents)
+    // move one level further away.
+    public VersionProfile merge(VersionProfile parent) {
+        List<Library> merged = new ArrayList<>(libraries);
+        for (Library lib : parent.libraries) {
+            merged.add(lib.atDepth(lib.depth + 1));
+        }
+        return new VersionProfile(id, inheritsFrom, type != null ? type : parent.type,
+                mainClass != null ? mainClass : parent.mainClass,
+                minecraftArguments != null ? minecraftArguments : parent.minecraftArguments,
+                arguments != null ? arguments : parent.arguments,
+                assetIndex != null ? assetIndex : parent.assetIndex,
+                javaVersion != null ? javaVersion : parent.javaVersion,
+                client != null ? client : parent.client, merged);
+    }
+
+    // Streams one version JSON; unknown fields are skipped without building a tree
+    public static VersionProfile read(JsonReader in) throws IOException {
+        String id = null, inheritsFrom = null, type = null, mainClass = null, minecraftArguments = null;
+        JsonElement arguments = null;
+        AssetIndexRef assetIndex = null;
+        JavaVersion javaVersion = null;
+        Download client = null;
+        List<Library> libraries = new ArrayList<>();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (key) {
+                case "id":
+                    id = string(in);
+                    break;
+                case "inheritsFrom":
+                    inheritsFrom = string(in);
+                    break;
+                case "type":
+                    type = string(in);
+                    break;
+                case "mainClass":
+                    mainClass = string(in);
+                    break;
+                case "minecraftArguments":
+                    minecraftArguments = string(in);
+                    break;
+                case "arguments":
+                    arguments = JsonParser.parseReader(in);
+                    break;
+                case "assetIndex":
+                    assetIndex = readAssetIndex(in);
+                    break;
+                case "javaVersion":
+                    javaVersion = readJavaVersion(in);
+                    break;
+                case "downloads":
+                    client = readDownloads(in).get("client");
+                    break;
+                case "libraries":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        libraries.add(readLibrary(in));
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new VersionProfile(id, inheritsFrom, type, mainClass, minecraftArguments, arguments, assetIndex,
+                javaVersion, client, libraries);
+    }
+
+    private static Library readLibrary(JsonReader in) throws IOException {
+        String name = null, url = null;
+        Download artifact = null;
+        Map<String, Download> classifiers = new LinkedHashMap<>();
+        List<Rule> rules = new ArrayList<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "name":
+                    name = string(in);
+                    break;
+                case "url":
+                    url = string(in);
+                    break;
+                case "downloads":
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String key = in.nextName();
+                        if (key.equals("artifact")) {
+                            artifact = readDownload(in);
+                        } else if (key.equals("classifiers")) {
+                            classifiers.putAll(readDownloads(in));
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    break;
+                case "rules":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        rules.add(readRule(in));
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Library(name, url, artifact, classifiers, rules, 0);
+    }
+
+    private static Rule readRule(JsonReader in) throws IOException {
+        String action = null, osName = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            if (key.equals("action")) {
+                action = string(in);
+            } else if (key.equals("os") && in.peek() == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    if (in.nextName().equals("name")) {
+                        osName = string(in);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Rule(action, osName);
+    }
+
+    private static Map<String, Download> readDownloads(JsonReader in) throws IOException {
+        Map<String, Download> downloads = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String key = in.nextName();
+            if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                downloads.put(key, readDownload(in));
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return downloads;
+    }
+
+    private static Download readDownload(JsonReader in) throws IOException {
+        String path = null, url = null, sha1 = null;
+        long size = -1;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "path":
+                    path = string(in);
+                    break;
+                case "url":
+                    url = string(in);
+                    break;
+                case "sha1":
+                    sha1 = string(in);
+                    break;
+                case "size":
+                    size = in.nextLong();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Download(path, url, sha1, size);
+    }
+
+    private static AssetIndexRef readAssetIndex(JsonReader in) throws IOException {
+        String id = null, url = null, sha1 = null;
+        long size = -1, totalSize = -1;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    id = string(in);
+                    break;
+                case "url":
+                    url = string(in);
+                    break;
+                case "sha1":
+                    sha1 = string(in);
+                    break;
+                case "size":
+                    size = in.nextLong();
+                    break;
+                case "totalSize":
+                    totalSize = in.nextLong();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new AssetIndexRef(id, url, sha1, size, totalSize);
+    }
+
+    private static JavaVersion readJavaVersion(JsonReader in) throws IOException {
+        String component = null;
+        int major = 8;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "component":
+                    component = string(in);
+                    break;
+                case "majorVersion":
+                    major = in.nextInt();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new JavaVersion(component, major);
+    }
+
+    // Tolerates explicit nulls, which some loader installers write
+    private static String string(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+}
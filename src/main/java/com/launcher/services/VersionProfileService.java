@@ -0,0 +1,113 @@
+package com.launcher.services;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Loads version JSONs into VersionProfiles and resolves inheritsFrom chains of any depth. Parsed
+// and resolved profiles are memoized in a small LRU keyed by path, size and mtime of every file in
+// the chain, so relaunching (or asking again from the dashboard) doesn't re-read the JSON.
+public class VersionProfileService {
+
+    public interface ParentFetcher {
+        // Makes <versionsDir>/<id>/<id>.json exist (typically by downloading it)
+        void fetch(String id, File target) throws IOException;
+    }
+
+    private static final int CACHE_SIZE = 32;
+    // Real chains are 2-3 deep (loader -> vanilla); anything longer is a loop or a broken install
+    private static final int MAX_DEPTH = 16;
+
+    private static VersionProfileService instance;
+    private final Map<String, VersionProfile> cache = new LinkedHashMap<String, VersionProfile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VersionProfile> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private VersionProfileService() {
+    }
+
+    public static synchronized VersionProfileService getInstance() {
+        if (instance == null) {
+            instance = new VersionProfileService();
+        }
+        return instance;
+    }
+
+    // A single JSON, without resolving its parents
+    public VersionProfile load(File file) throws IOException {
+        String key = fileKey(file);
+        synchronized (cache) {
+            VersionProfile cached = cache.get(key);
+            if (cached != null)
+                return cached;
+        }
+        VersionProfile profile;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+                JsonReader json = new JsonReader(reader)) {
+            profile = VersionProfile.read(json);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed version JSON " + file + ": " + e.getMessage(), e);
+        }
+        synchronized (cache) {
+            cache.put(key, profile);
+        }
+        return profile;
+    }
+
+    // The profile at file with every ancestor merged in. Parents live in versionsDir/<id>/<id>.json
+    // and are fetched when missing.
+    public VersionProfile resolve(File file, File versionsDir, ParentFetcher fetcher) throws IOException {
+        List<VersionProfile> chain = new ArrayList<>();
+        StringBuilder chainKey = new StringBuilder("resolved|");
+        Set<String> seen = new HashSet<>();
+        VersionProfile current = load(file);
+        chainKey.append(fileKey(file));
+        chain.add(current);
+        while (current.inheritsFrom != null) {
+            String parentId = current.inheritsFrom;
+            if (!seen.add(parentId) || chain.size() > MAX_DEPTH)
+                throw new IOException("inheritsFrom loop or chain too deep at " + parentId);
+            File parentFile = new File(new File(versionsDir, parentId), parentId + ".json");
+            if (!parentFile.isFile()) {
+                LogService.info("Parent version " + parentId + " not found locally. Attempting to fetch...");
+                fetcher.fetch(parentId, parentFile);
+            }
+            current = load(parentFile);
+            chainKey.append('|').append(fileKey(parentFile));
+            chain.add(current);
+        }
+
+        String key = chainKey.toString();
+        synchronized (cache) {
+            VersionProfile cached = cache.get(key);
+            if (cached != null)
+                return cached;
+        }
+        // Merge from the root down so each level sees its fully resolved parent
+        VersionProfile resolved = chain.get(chain.size() - 1);
+        for (int i = chain.size() - 2; i >= 0; i--) {
+            resolved = chain.get(i).merge(resolved);
+        }
+        synchronized (cache) {
+            cache.put(key, resolved);
+        }
+        return resolved;
+    }
+
+    private static String fileKey(File file) {
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+}
@@ -9,6 +9,7 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -16,17 +17,32 @@ import java.util.concurrent.CompletableFuture;
 public class VersionService {
 
     private static final String MANIFEST_URL = "https://piston-meta.mojang.com/mc/game/version_manifest.json";
+    private static final long MANIFEST_MAX_AGE_MS = 60 * 60 * 1000;
     private final Gson gson = new Gson();
 
+    // Reduced manifest kept in the local state store: only what VersionInfo needs
+    private static class CachedManifest {
+        long fetchedAt;
+        List<VersionInfo> versions;
+    }
+
     public CompletableFuture<List<VersionInfo>> getVersions() {
         return CompletableFuture.supplyAsync(() -> {
+            LocalStateStore store = LocalStateStore.getInstance();
+            CachedManifest cached = store.getJson(LocalStateStore.MANIFEST, CachedManifest.class);
+            if (cached != null && cached.versions != null
+                    && System.currentTimeMillis() - cached.fetchedAt < MANIFEST_MAX_AGE_MS) {
+                return new ArrayList<>(cached.versions);
+            }
+
             List<VersionInfo> versions = new ArrayList<>();
             try {
                 URL url = new URL(MANIFEST_URL);
                 HttpURLConnection conn = (HttpURLConnection) url.openConnection();
                 conn.setRequestMethod("GET");
 
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
                 JsonObject json = gson.fromJson(reader, JsonObject.class);
                 reader.close();
 
@@ -39,7 +55,17 @@ public class VersionService {
 
                     versions.add(new VersionInfo(id, type, vUrl));
                 }
+
+                CachedManifest fresh = new CachedManifest();
+                fresh.fetchedAt = System.currentTimeMillis();
+                fresh.versions = versions;
+                store.putJson(LocalStateStore.MANIFEST, fresh);
             } catch (Exception e) {
+                // Offline: a stale manifest beats none
+                if (cached != null && cached.versions != null) {
+                    LogService.warn("Version manifest unavailable, using cached copy: " + e.getMessage());
+                    return new ArrayList<>(cached.versions);
+                }
                 e.printStackTrace();
                 versions.add(new VersionInfo("Error", "release", ""));
             }
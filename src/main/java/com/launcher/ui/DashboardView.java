@@ -1,12 +1,21 @@
 package com.launcher.ui;
 
+import com.launcher.services.CancellationToken;
+import com.launcher.services.CrashAnalyzerService;
 import com.launcher.services.GameLaunchService;
+import com.launcher.services.HeapAdvisorService;
+import com.launcher.services.InstanceCloneService;
 import com.launcher.services.InstanceMetadataService;
+import com.launcher.services.InstanceTrashService;
+import com.launcher.services.JvmProfileService;
+import com.launcher.services.LocalStateStore;
+import com.launcher.services.LogService;
 import com.launcher.services.SessionService;
 import com.launcher.services.SettingsService;
 import com.launcher.services.VersionInfo;
 import com.launcher.services.VersionService;
 import com.launcher.services.ModpackService;
+import com.launcher.services.PrewarmService;
 import com.launcher.services.RemoteModpackService;
 import com.launcher.util.Constants;
 import javafx.geometry.Insets;
@@ -15,12 +24,21 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DashboardView extends VBox {
 
+    private static final java.lang.reflect.Type INSTALLED_INDEX_TYPE = com.google.gson.reflect.TypeToken
+            .getParameterized(List.class, VersionInfo.class).getType();
+
     private final Label statusLabel;
+    // One CANCEL button per running launch/install, each bound to that task's own token
+    private final HBox taskButtons;
+    private final Map<String, CancellationToken> activeTasks = new HashMap<>();
     private final SessionService session = SessionService.getInstance();
     private FlowPane instancesGrid;
     private VBox remoteList;
@@ -68,6 +86,12 @@ public class DashboardView extends VBox {
         statusLabel.setStyle("-fx-text-fill: #8e8e93; -fx-font-size: 12px;");
         statusLabel.setAlignment(Pos.CENTER);
 
+        taskButtons = new HBox(6);
+        taskButtons.setAlignment(Pos.CENTER);
+
+        HBox statusRow = new HBox(10, statusLabel, taskButtons);
+        statusRow.setAlignment(Pos.CENTER);
+
         // --- REMOTE MODPACKS ---
         VBox remoteSection = new VBox(15);
         remoteSection.setAlignment(Pos.TOP_CENTER);
@@ -91,7 +115,7 @@ public class DashboardView extends VBox {
 
         remoteSection.getChildren().addAll(remoteHeader, remoteList);
 
-        this.getChildren().addAll(header, instancesScroll, statusLabel, remoteSection);
+        this.getChildren().addAll(header, instancesScroll, statusRow, remoteSection);
 
         // Load instances
         refreshInstances();
@@ -115,15 +139,21 @@ public class DashboardView extends VBox {
             return;
         }
 
+        CancellationToken token = beginTask(version.getId(), customName);
+        if (token == null)
+            return;
         statusLabel.setText("Installing " + customName + "...");
 
         new GameLaunchService().launchGame(version, session, status -> {
             javafx.application.Platform.runLater(() -> {
                 statusLabel.setText(status);
             });
-        }).thenAccept(process -> {
+        }, token).thenAccept(process -> {
             javafx.application.Platform.runLater(() -> {
-                if (process != null) {
+                endTask(version.getId(), token);
+                if (token.isCancelled()) {
+                    statusLabel.setText("Installation cancelled");
+                } else if (process != null) {
                     // Save custom name
                     InstanceMetadataService.getInstance().setInstanceName(version.getId(), customName,
                             version.getType());
@@ -151,7 +181,6 @@ public class DashboardView extends VBox {
 
         confirm.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                // Delete instance files
                 File versionFolder;
                 if ("modpack".equals(version.getType())) {
                     versionFolder = new File(Constants.GAME_DIR + "/modpacks", version.getId());
@@ -159,13 +188,25 @@ public class DashboardView extends VBox {
                     versionFolder = new File(Constants.GAME_DIR + "/versions", version.getId());
                 }
 
-                if (versionFolder.exists()) {
-                    deleteDirectory(versionFolder);
+                // Renamed into the trash right away; the files are deleted in the background
+                try {
+                    InstanceTrashService.getInstance().trash(versionFolder);
+                } catch (IOException e) {
+                    LogService.error("Failed to delete instance " + version.getId(), e);
+                    statusLabel.setText("Could not delete instance (is it still running?)");
+                    return;
                 }
 
                 // Remove metadata
                 InstanceMetadataService.getInstance().removeInstance(version.getId());
 
+                LocalStateStore store = LocalStateStore.getInstance();
+                List<VersionInfo> known = store.getJson(LocalStateStore.INSTALLED, INSTALLED_INDEX_TYPE);
+                if (known != null) {
+                    known.removeIf(v -> v.getId().equals(version.getId()) && v.getType().equals(version.getType()));
+                    store.putJson(LocalStateStore.INSTALLED, known);
+                }
+
                 statusLabel.setText("Instance deleted");
                 refreshInstances();
                 refreshRemoteModpacks();
@@ -173,18 +214,6 @@ public class DashboardView extends VBox {
         });
     }
 
-    private void deleteDirectory(File directory) {
-        File[] allContents = directory.listFiles();
-        if (allContents != null) {
-            for (File file : allContents) {
-                deleteDirectory(file);
-            }
-        }
-        if (!directory.delete()) {
-            System.err.println("Failed to delete: " + directory.getAbsolutePath());
-        }
-    }
-
     private void updateInstancesGrid(List<VersionInfo> versions) {
         instancesGrid.getChildren().clear();
 
@@ -215,13 +244,25 @@ public class DashboardView extends VBox {
 
         ContextMenu contextMenu = new ContextMenu();
         MenuItem renameItem = new MenuItem("Rename");
+        MenuItem logItem = new MenuItem("View Log");
+        MenuItem jvmItem = new MenuItem("JVM Settings");
+        MenuItem cloneItem = new MenuItem("Clone");
         MenuItem deleteItem = new MenuItem("Delete");
         deleteItem.setStyle("-fx-text-fill: #ef4444;");
 
         renameItem.setOnAction(e -> renameInstance(version));
+        logItem.setOnAction(e -> new GameLogView(version.getId(),
+                InstanceMetadataService.getInstance().getInstanceName(version.getId())).show());
+        jvmItem.setOnAction(e -> editJvmSettings(version));
+        cloneItem.setOnAction(e -> cloneInstance(version));
         deleteItem.setOnAction(e -> deleteInstance(version));
 
-        contextMenu.getItems().addAll(renameItem, deleteItem);
+        contextMenu.getItems().addAll(renameItem, logItem, jvmItem);
+        // Only modpacks have a self-contained folder to duplicate
+        if ("modpack".equals(version.getType())) {
+            contextMenu.getItems().add(cloneItem);
+        }
+        contextMenu.getItems().add(deleteItem);
         editBtn.setOnAction(e -> contextMenu.show(editBtn, javafx.geometry.Side.BOTTOM, 0, 0));
 
         StackPane editContainer = new StackPane(editBtn);
@@ -275,6 +316,78 @@ public class DashboardView extends VBox {
         });
     }
 
+    private void cloneInstance(VersionInfo version) {
+        String sourceName = InstanceMetadataService.getInstance().getInstanceName(version.getId());
+        TextInputDialog dialog = new TextInputDialog(sourceName + " (copy)");
+        dialog.setTitle("Clone Instance");
+        dialog.setHeaderText("Clone " + sourceName);
+        dialog.setContentText("Name:");
+
+        dialog.showAndWait().ifPresent(input -> {
+            String newName = input.trim();
+            if (newName.isEmpty())
+                return;
+            InstanceCloneService cloner = InstanceCloneService.getInstance();
+            String newId = cloner.newId(newName, version.getId());
+            statusLabel.setText("Cloning " + sourceName + "...");
+            java.util.concurrent.CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cloner.cloneInstance(version.getId(), newId, newName);
+                } catch (IOException e) {
+                    throw new java.util.concurrent.CompletionException(e);
+                }
+            }).whenComplete((result, error) -> javafx.application.Platform.runLater(() -> {
+                if (error != null) {
+                    LogService.error("Failed to clone instance " + version.getId(), error);
+                    statusLabel.setText("Clone failed: " + (error.getCause() != null ? error.getCause().getMessage()
+                            : error.getMessage()));
+                    return;
+                }
+                statusLabel.setText("Cloned " + sourceName + " in " + result.millis + " ms");
+                refreshInstances();
+            }));
+        });
+    }
+
+    private void editJvmSettings(VersionInfo version) {
+        InstanceMetadataService metadata = InstanceMetadataService.getInstance();
+        InstanceMetadataService.InstanceMetadata meta = metadata.getMetadata(version.getId());
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("JVM Settings");
+        dialog.setHeaderText("JVM settings for " + metadata.getInstanceName(version.getId()));
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        // Empty choice means "follow the launcher-wide profile"
+        ComboBox<String> profile = new ComboBox<>();
+        profile.getItems().add("Global default");
+        for (JvmProfileService.Preset preset : JvmProfileService.Preset.values()) {
+            profile.getItems().add(preset.toString());
+        }
+        JvmProfileService.Preset current = meta != null ? JvmProfileService.parse(meta.jvmProfile) : null;
+        profile.setValue(current != null ? current.toString() : "Global default");
+
+        TextField extraArgs = new TextField(meta != null && meta.extraJvmArgs != null ? meta.extraJvmArgs : "");
+        extraArgs.setPromptText("-XX:+SomeFlag -Dkey=value");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.addRow(0, new Label("Profile:"), profile);
+        grid.addRow(1, new Label("Extra arguments:"), extraArgs);
+        dialog.getDialogPane().setContent(grid);
+
+        dialog.showAndWait().filter(b -> b == ButtonType.OK).ifPresent(b -> {
+            String chosen = null;
+            for (JvmProfileService.Preset preset : JvmProfileService.Preset.values()) {
+                if (preset.toString().equals(profile.getValue()))
+                    chosen = preset.name();
+            }
+            String extra = extraArgs.getText().trim();
+            metadata.setJvmOptions(version.getId(), version.getType(), chosen, extra.isEmpty() ? null : extra);
+        });
+    }
+
     public void refreshRemoteModpacks() {
         String repoUrl = SettingsService.getInstance().getRepoUrl();
         if (repoUrl == null || repoUrl.isEmpty())
@@ -315,14 +428,25 @@ public class DashboardView extends VBox {
                                 "-fx-background-color: rgba(255,255,255,0.05); -fx-text-fill: #8e8e93; -fx-font-size: 11px; -fx-padding: 6 15;");
                     }
 
+                    CancellationToken[] install = new CancellationToken[1];
                     actionBtn.setOnAction(e -> {
-                        actionBtn.setDisable(true);
-                        actionBtn.setText("INSTALLING...");
+                        // While installing, the same button cancels the download
+                        if (install[0] != null) {
+                            actionBtn.setDisable(true);
+                            actionBtn.setText("CANCELLING...");
+                            install[0].cancel();
+                            return;
+                        }
+                        CancellationToken token = new CancellationToken();
+                        install[0] = token;
+                        actionBtn.setText("CANCEL");
                         new RemoteModpackService().installModpack(mp, status -> {
                             javafx.application.Platform.runLater(() -> statusLabel.setText(status));
-                        }).thenAccept(success -> {
+                        }, token).thenAccept(success -> {
                             javafx.application.Platform.runLater(() -> {
+                                install[0] = null;
                                 if (success) {
+                                    actionBtn.setDisable(true);
                                     actionBtn.setText("INSTALLED");
                                     refreshInstances();
                                     refreshRemoteModpacks();
@@ -342,30 +466,56 @@ public class DashboardView extends VBox {
     }
 
     public void refreshInstances() {
-        // Get all versions
-        new VersionService().getVersions().thenAccept(allVersions -> {
-            List<VersionInfo> modpacks = new ModpackService().getModpacksAsVersions();
+        // Paint the last known installed set straight from local state, then reconcile with disk
+        LocalStateStore store = LocalStateStore.getInstance();
+        List<VersionInfo> known = store.getJson(LocalStateStore.INSTALLED, INSTALLED_INDEX_TYPE);
+        if (known != null) {
+            updateInstancesGrid(known);
+        }
 
-            javafx.application.Platform.runLater(() -> {
-                // Filter to only show installed instances
-                List<VersionInfo> installed = new ArrayList<>();
-                GameLaunchService launcher = new GameLaunchService();
+        new VersionService().getVersions().thenAccept(allVersions -> {
+            List<VersionInfo> installed = new ArrayList<>();
+            GameLaunchService launcher = new GameLaunchService();
 
-                // Add installed modpacks
-                installed.addAll(modpacks);
+            // Add installed modpacks
+            installed.addAll(new ModpackService().getModpacksAsVersions());
 
-                // Add installed vanilla versions
-                for (VersionInfo version : allVersions) {
-                    if (launcher.isVersionInstalled(version)) {
-                        installed.add(version);
-                    }
+            // Add installed vanilla versions; only ids with a folder need the json/jar check
+            java.util.Set<String> folders = new java.util.HashSet<>();
+            String[] names = new File(Constants.GAME_DIR, "versions").list();
+            if (names != null) {
+                folders.addAll(java.util.Arrays.asList(names));
+            }
+            for (VersionInfo version : allVersions) {
+                if (folders.contains(version.getId()) && launcher.isVersionInstalled(version)) {
+                    installed.add(version);
                 }
+            }
 
-                updateInstancesGrid(installed);
-            });
+            store.putJson(LocalStateStore.INSTALLED, installed);
+            // Likely next launch: warm its jars while the user is still on the dashboard
+            String lastId = SettingsService.getInstance().getLastVersionId();
+            for (VersionInfo version : installed) {
+                if (version.getId().equals(lastId)) {
+                    PrewarmService.getInstance().prewarmInstance(version);
+                }
+            }
+            if (known != null && sameInstances(known, installed))
+                return;
+            javafx.application.Platform.runLater(() -> updateInstancesGrid(installed));
         });
     }
 
+    private boolean sameInstances(List<VersionInfo> a, List<VersionInfo> b) {
+        if (a.size() != b.size())
+            return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).getId().equals(b.get(i).getId()) || !a.get(i).getType().equals(b.get(i).getType()))
+                return false;
+        }
+        return true;
+    }
+
     private void handleLaunch(VersionInfo version) {
         if (!session.isLoggedIn()) {
             statusLabel.setText("Please login first!");
@@ -374,16 +524,24 @@ public class DashboardView extends VBox {
 
         SettingsService.getInstance().setLastVersionId(version.getId());
         String displayName = InstanceMetadataService.getInstance().getInstanceName(version.getId());
+        CancellationToken token = beginTask(version.getId(), displayName);
+        if (token == null)
+            return;
         statusLabel.setText("Starting " + displayName + "...");
+        long launchedAt = System.currentTimeMillis();
 
         new GameLaunchService().launchGame(version, session, status -> {
             javafx.application.Platform.runLater(() -> {
                 statusLabel.setText(status);
             });
-        }).thenAccept(process -> {
+        }, token).thenAccept(process -> {
             javafx.application.Platform.runLater(() -> {
-                if (process != null) {
+                endTask(version.getId(), token);
+                if (token.isCancelled()) {
+                    statusLabel.setText("Launch cancelled");
+                } else if (process != null) {
                     statusLabel.setText(displayName + " is running!");
+                    InstanceMetadataService.getInstance().recordLaunch(version.getId(), version.getType());
 
                     if (SettingsService.getInstance().isAutoClose()) {
                         javafx.application.Platform.exit();
@@ -392,9 +550,25 @@ public class DashboardView extends VBox {
 
                     new Thread(() -> {
                         try {
-                            process.waitFor();
+                            int exitCode = process.waitFor();
+                            InstanceMetadataService metadata = InstanceMetadataService.getInstance();
+                            metadata.recordPlaytime(version.getId(), version.getType(),
+                                    System.currentTimeMillis() - launchedAt);
+                            metadata.setDiskSize(version.getId(), version.getType(),
+                                    directorySize(new GameLaunchService().getInstanceDir(version)));
+                            String heapNote = HeapAdvisorService.getInstance().afterExit(version.getId(),
+                                    version.getType(), new GameLaunchService().getInstanceDir(version));
+                            String message = heapNote != null ? displayName + ": " + heapNote : "";
+                            if (exitCode != 0) {
+                                // The watcher's final pass has picked up the crash report written on exit
+                                CrashAnalyzerService analyzer = CrashAnalyzerService.getInstance();
+                                message = displayName + ": "
+                                        + analyzer.describe(analyzer.afterExit(version.getId()).join())
+                                        + (heapNote != null ? ". " + heapNote : "");
+                            }
+                            String finalMessage = message;
                             javafx.application.Platform.runLater(() -> {
-                                statusLabel.setText("");
+                                statusLabel.setText(finalMessage);
                             });
                         } catch (InterruptedException e) {
                         }
@@ -403,4 +577,40 @@ public class DashboardView extends VBox {
             });
         });
     }
+
+    private long directorySize(File dir) {
+        if (!dir.exists())
+            return 0;
+        try (java.util.stream.Stream<java.nio.file.Path> walk = java.nio.file.Files.walk(dir.toPath())) {
+            return walk.filter(java.nio.file.Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    // Tasks for different instances run side by side; a second one for the same instance would
+    // race the first over the same files, so it is refused. Returns null in that case.
+    private CancellationToken beginTask(String instanceId, String displayName) {
+        if (activeTasks.containsKey(instanceId)) {
+            statusLabel.setText(displayName + " is already being prepared");
+            return null;
+        }
+        CancellationToken token = new CancellationToken();
+        activeTasks.put(instanceId, token);
+        Button cancel = new Button("CANCEL " + displayName);
+        cancel.getStyleClass().add("secondary-button");
+        cancel.setStyle("-fx-font-size: 10px; -fx-padding: 5 10;");
+        cancel.setUserData(token);
+        cancel.setOnAction(e -> {
+            statusLabel.setText("Cancelling " + displayName + "...");
+            token.cancel();
+        });
+        taskButtons.getChildren().add(cancel);
+        return token;
+    }
+
+    private void endTask(String instanceId, CancellationToken token) {
+        activeTasks.remove(instanceId, token);
+        taskButtons.getChildren().removeIf(node -> node.getUserData() == token);
+    }
 }
@@ -0,0 +1,113 @@
+package com.launcher.ui;
+
+import com.launcher.services.GameOutputBuffer;
+import com.launcher.services.GameOutputService;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GameLogView extends Stage {
+
+    private static final int MAX_LINES_PER_TICK = 2000;
+
+    private final GameOutputBuffer buffer;
+    private final ObservableList<GameOutputBuffer.Line> lines = FXCollections.observableArrayList();
+    private final FilteredList<GameOutputBuffer.Line> filtered = new FilteredList<>(lines, l -> true);
+    private final ListView<GameOutputBuffer.Line> listView = new ListView<>(filtered);
+    private final CheckBox followCb;
+    private final Timeline poller;
+    private long nextSequence;
+
+    public GameLogView(String instanceId, String displayName) {
+        this.setTitle("Game Output - " + displayName);
+        this.setWidth(900);
+        this.setHeight(600);
+        this.buffer = GameOutputService.getInstance().getBuffer(instanceId);
+
+        VBox root = new VBox(12);
+        root.setPadding(new Insets(20));
+        root.setStyle("-fx-background-color: #0f0f11;");
+
+        Label title = new Label(displayName.toUpperCase() + " OUTPUT");
+        title.setStyle("-fx-text-fill: white; -fx-font-size: 18px; -fx-font-weight: bold;");
+
+        HBox toolbar = new HBox(12);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search output...");
+        searchField.setStyle(
+                "-fx-background-color: #1c1c1e; -fx-text-fill: white; -fx-prompt-text-fill: #8e8e93; -fx-padding: 8; -fx-background-radius: 8;");
+        HBox.setHgrow(searchField, Priority.ALWAYS);
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> {
+            String query = newVal.trim().toLowerCase();
+            filtered.setPredicate(query.isEmpty() ? l -> true : l -> l.text.toLowerCase().contains(query));
+        });
+
+        followCb = new CheckBox("FOLLOW");
+        followCb.setSelected(true);
+        followCb.setStyle("-fx-text-fill: #8e8e93; -fx-font-size: 11px;");
+
+        toolbar.getChildren().addAll(searchField, followCb);
+
+        // ListView only creates cells for visible rows, so long outputs stay cheap to display
+        listView.setStyle(
+                "-fx-background-color: #1c1c1e; -fx-border-color: rgba(255,255,255,0.1); -fx-border-radius: 10; -fx-background-radius: 10;");
+        listView.setFixedCellSize(18);
+        listView.setCellFactory(lv -> new ListCell<GameOutputBuffer.Line>() {
+            @Override
+            protected void updateItem(GameOutputBuffer.Line item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                    setStyle("-fx-background-color: transparent;");
+                } else {
+                    setText(item.text);
+                    setStyle("-fx-background-color: transparent; -fx-font-family: 'Consolas', monospace; -fx-font-size: 11px; -fx-padding: 0 6;"
+                            + (item.error ? "-fx-text-fill: #ef4444;" : "-fx-text-fill: #e0e0e2;"));
+                }
+            }
+        });
+        VBox.setVgrow(listView, Priority.ALWAYS);
+
+        root.getChildren().addAll(title, toolbar, listView);
+        this.setScene(new javafx.scene.Scene(root));
+
+        nextSequence = buffer.getFirstSequence();
+        poller = new Timeline(new KeyFrame(Duration.millis(250), e -> pollOutput()));
+        poller.setCycleCount(Timeline.INDEFINITE);
+        this.setOnShown(e -> {
+            pollOutput();
+            poller.play();
+        });
+        this.setOnHidden(e -> poller.stop());
+    }
+
+    private void pollOutput() {
+        List<GameOutputBuffer.Line> fresh = new ArrayList<>();
+        nextSequence = buffer.read(nextSequence, MAX_LINES_PER_TICK, fresh);
+        if (fresh.isEmpty())
+            return;
+
+        lines.addAll(fresh);
+        // Mirror the buffer's bound so the view never holds more than the ring does
+        int overflow = lines.size() - buffer.getCapacity();
+        if (overflow > 0) {
+            lines.remove(0, overflow);
+        }
+        if (followCb.isSelected() && !filtered.isEmpty()) {
+            listView.scrollTo(filtered.size() - 1);
+        }
+    }
+}
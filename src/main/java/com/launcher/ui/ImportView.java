@@ -1,5 +1,6 @@
 package com.launcher.ui;
 
+import com.launcher.services.CancellationToken;
 import com.launcher.services.ModpackService;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -8,12 +9,15 @@ import javafx.scene.input.TransferMode;
 import javafx.scene.layout.VBox;
 import java.io.File;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class ImportView extends VBox {
 
     private final ModpackService modpackService = new ModpackService();
     private final Label statusLabel;
     private final ProgressBar progressBar;
+    private final Button cancelButton;
+    private volatile CancellationToken activeImport;
     private final String gameDir = com.launcher.util.Constants.GAME_DIR;
 
     public ImportView() {
@@ -52,7 +56,20 @@ public class ImportView extends VBox {
         progressBar.setVisible(false);
         progressBar.setManaged(false);
 
-        this.getChildren().addAll(title, dropZone, statusLabel, progressBar);
+        cancelButton = new Button("CANCEL");
+        cancelButton.getStyleClass().add("secondary-button");
+        cancelButton.setVisible(false);
+        cancelButton.setManaged(false);
+        cancelButton.setOnAction(e -> {
+            CancellationToken token = activeImport;
+            if (token != null) {
+                cancelButton.setDisable(true);
+                statusLabel.setText("CANCELLING...");
+                token.cancel();
+            }
+        });
+
+        this.getChildren().addAll(title, dropZone, statusLabel, progressBar, cancelButton);
 
         // Drag Events
         dropZone.setOnDragOver(event -> {
@@ -85,179 +102,226 @@ public class ImportView extends VBox {
     }
 
     private void handleFileDrop(File file) {
+        if (activeImport != null) {
+            statusLabel.setText("AN IMPORT IS ALREADY RUNNING");
+            return;
+        }
+        CancellationToken token = new CancellationToken();
+        activeImport = token;
+
         statusLabel.setText("INSTALLING " + file.getName().toUpperCase() + "...");
         statusLabel.setStyle("-fx-text-fill: #10b981;");
         progressBar.setVisible(true);
         progressBar.setManaged(true);
         progressBar.setProgress(-1);
+        cancelButton.setDisable(false);
+        cancelButton.setVisible(true);
+        cancelButton.setManaged(true);
 
         new Thread(() -> {
-            com.launcher.services.LogService.info("Starting import for: " + file.getAbsolutePath());
-            ModpackService.ModpackType type = modpackService.detectModpackType(file);
-            com.launcher.services.LogService.info("Detected type: " + type);
-
-            if (type == ModpackService.ModpackType.UNKNOWN) {
-                javafx.application.Platform.runLater(() -> {
-                    statusLabel.setText("UNKNOWN MODPACK FORMAT");
-                    statusLabel.setStyle("-fx-text-fill: #ef4444;");
-                    progressBar.setVisible(false);
-                    progressBar.setManaged(false);
-                });
-                return;
-            }
-
             try {
-                File modpacksDir = new File(gameDir + "/modpacks");
-                modpacksDir.mkdirs();
-                String folderName = file.getName().replace(".zip", "").replace(".mrpack", "");
-                File destDir = new File(modpacksDir, folderName);
-                destDir.mkdirs();
-
-                // Extract modpack contents
+                importModpack(file, token);
+            } finally {
+                activeImport = null;
                 javafx.application.Platform.runLater(() -> {
-                    statusLabel.setText("EXTRACTING " + folderName.toUpperCase() + "...");
+                    cancelButton.setVisible(false);
+                    cancelButton.setManaged(false);
                 });
+            }
+        }).start();
+    }
 
-                extractModpack(file, destDir, type);
-
-                // Analyze modpack to get version info
-                ModpackService.ModpackInfo info = modpackService.analyzeModpack(file);
-                com.launcher.services.LogService
-                        .info("Analyzed Info - MC: " + info.minecraftVersion + ", Loader: " + info.modloader);
-
-                // Create JSON file
-                File jsonFile = new File(destDir, folderName + ".json");
+    private void importModpack(File file, CancellationToken token) {
+        com.launcher.services.LogService.info("Starting import for: " + file.getAbsolutePath());
+        ModpackService.ModpackType type = modpackService.detectModpackType(file);
+        com.launcher.services.LogService.info("Detected type: " + type);
+
+        if (type == ModpackService.ModpackType.UNKNOWN) {
+            javafx.application.Platform.runLater(() -> {
+                statusLabel.setText("UNKNOWN MODPACK FORMAT");
+                statusLabel.setStyle("-fx-text-fill: #ef4444;");
+                progressBar.setVisible(false);
+                progressBar.setManaged(false);
+            });
+            return;
+        }
 
-                // Logic to regenerate JSON if needed
-                boolean needsUpdate = !jsonFile.exists();
-                if (jsonFile.exists()) {
-                    try {
-                        String content = java.nio.file.Files.readString(jsonFile.toPath());
-                        if (content.contains("\"mainClass\":\"net.minecraft.client.main.Main\"")
-                                && info.modloader != null) {
-                            needsUpdate = true;
-                        }
-                    } catch (Exception e) {
+        File modpacksDir = new File(gameDir + "/modpacks");
+        String folderName = file.getName().replace(".zip", "").replace(".mrpack", "");
+        File destDir = new File(modpacksDir, folderName);
+        boolean existedBefore = destDir.exists();
+        try {
+            modpacksDir.mkdirs();
+            destDir.mkdirs();
+
+            // Extract modpack contents
+            javafx.application.Platform.runLater(() -> {
+                statusLabel.setText("EXTRACTING " + folderName.toUpperCase() + "...");
+            });
+
+            extractModpack(file, destDir, type, token);
+            token.throwIfCancelled();
+
+            // Analyze modpack to get version info
+            ModpackService.ModpackInfo info = modpackService.analyzeModpack(file);
+            com.launcher.services.LogService
+                    .info("Analyzed Info - MC: " + info.minecraftVersion + ", Loader: " + info.modloader);
+
+            // Create JSON file
+            File jsonFile = new File(destDir, folderName + ".json");
+
+            // Logic to regenerate JSON if needed
+            boolean needsUpdate = !jsonFile.exists();
+            if (jsonFile.exists()) {
+                try {
+                    String content = java.nio.file.Files.readString(jsonFile.toPath());
+                    if (content.contains("\"mainClass\":\"net.minecraft.client.main.Main\"")
+                            && info.modloader != null) {
                         needsUpdate = true;
                     }
+                } catch (Exception e) {
+                    needsUpdate = true;
                 }
+            }
 
-                if (needsUpdate) {
-                    com.launcher.services.LogService.info("Generating instance.json...");
-                    String jsonContent = null;
+            if (needsUpdate) {
+                com.launcher.services.LogService.info("Generating instance.json...");
+                String jsonContent = null;
+
+                if ("fabric".equalsIgnoreCase(info.modloader) && info.minecraftVersion != null
+                        && info.modloaderVersion != null) {
+                    String fabricUrl = "https://meta.fabricmc.net/v2/versions/loader/" + info.minecraftVersion
+                            + "/" + info.modloaderVersion + "/profile/json";
+                    statusLabel.setText("DOWNLOADING FABRIC PROFILE...");
+                    com.launcher.services.LogService.info("Downloading Fabric profile from: " + fabricUrl);
+                    downloadFile(fabricUrl, jsonFile, token);
+
+                    // Read and modify to ensure ID is correct
+                    com.google.gson.JsonObject json;
+                    try (java.io.FileReader reader = new java.io.FileReader(jsonFile)) {
+                        json = new com.google.gson.Gson().fromJson(reader, com.google.gson.JsonObject.class);
+                    }
+                    json.addProperty("id", folderName);
+                    json.addProperty("type", "modpack");
+                    if (!json.has("inheritsFrom")) {
+                        json.addProperty("inheritsFrom", info.minecraftVersion);
+                    }
+                    java.nio.file.Files.writeString(jsonFile.toPath(), new com.google.gson.Gson().toJson(json));
+                    jsonContent = null; // Already written
+
+                } else if ("forge".equalsIgnoreCase(info.modloader)
+                        || "neoforge".equalsIgnoreCase(info.modloader)) {
+                    com.launcher.services.LogService.info("Configuring for Forge/NeoForge...");
+                    jsonContent = "{\"id\":\"" + folderName + "\", \"inheritsFrom\":\"" + info.minecraftVersion
+                            + "\", \"type\":\"modpack\", \"modloader\":\"" + info.modloader
+                            + "\", \"modloaderVersion\":\""
+                            + info.modloaderVersion + "\"}";
+                } else {
+                    // FALLBACK: Check if mods folder exists and has files
+                    File modsDir = new File(destDir, "mods");
+                    boolean hasFabricMod = false;
+
+                    if (modsDir.exists() && modsDir.isDirectory() && modsDir.list().length > 0) {
+                        com.launcher.services.LogService.warn(
+                                "Modloader not detected in manifest, but mods folder found. Checking for Fabric...");
+
+                        File[] modFiles = modsDir.listFiles();
+                        if (modFiles != null) {
+                            for (File mod : modFiles) {
+                                if (mod.getName().endsWith(".jar")) {
+                                    try (java.util.zip.ZipFile zf = new java.util.zip.ZipFile(mod)) {
+                                        if (zf.getEntry("fabric.mod.json") != null) {
+                                            hasFabricMod = true;
+                                            break;
+                                        }
+                                    } catch (Exception ignored) {
+                                    }
+                                }
+                            }
+                        }
+                    }
 
-                    if ("fabric".equalsIgnoreCase(info.modloader) && info.minecraftVersion != null
-                            && info.modloaderVersion != null) {
-                        String fabricUrl = "https://meta.fabricmc.net/v2/versions/loader/" + info.minecraftVersion
-                                + "/" + info.modloaderVersion + "/profile/json";
-                        statusLabel.setText("DOWNLOADING FABRIC PROFILE...");
-                        com.launcher.services.LogService.info("Downloading Fabric profile from: " + fabricUrl);
-                        downloadFile(fabricUrl, jsonFile);
+                    if (hasFabricMod) {
+                        com.launcher.services.LogService
+                                .info("Detected fabric.mod.json in mods. Forcing Fabric.");
+                        String loaderVer = "0.15.7"; // Hardcoded fallback
+                        String fabricUrl = "https://meta.fabricmc.net/v2/versions/loader/"
+                                + info.minecraftVersion
+                                + "/" + loaderVer + "/profile/json";
+                        downloadFile(fabricUrl, jsonFile, token);
 
-                        // Read and modify to ensure ID is correct
+                        // Fix ID
                         com.google.gson.JsonObject json;
                         try (java.io.FileReader reader = new java.io.FileReader(jsonFile)) {
-                            json = new com.google.gson.Gson().fromJson(reader, com.google.gson.JsonObject.class);
+                            json = new com.google.gson.Gson().fromJson(reader,
+                                    com.google.gson.JsonObject.class);
                         }
                         json.addProperty("id", folderName);
                         json.addProperty("type", "modpack");
                         if (!json.has("inheritsFrom")) {
                             json.addProperty("inheritsFrom", info.minecraftVersion);
                         }
-                        java.nio.file.Files.writeString(jsonFile.toPath(), new com.google.gson.Gson().toJson(json));
-                        jsonContent = null; // Already written
-
-                    } else if ("forge".equalsIgnoreCase(info.modloader)
-                            || "neoforge".equalsIgnoreCase(info.modloader)) {
-                        com.launcher.services.LogService.info("Configuring for Forge/NeoForge...");
-                        jsonContent = "{\"id\":\"" + folderName + "\", \"inheritsFrom\":\"" + info.minecraftVersion
-                                + "\", \"type\":\"modpack\", \"modloader\":\"" + info.modloader
-                                + "\", \"modloaderVersion\":\""
-                                + info.modloaderVersion + "\"}";
+                        java.nio.file.Files.writeString(jsonFile.toPath(),
+                                new com.google.gson.Gson().toJson(json));
+                        jsonContent = null;
                     } else {
-                        // FALLBACK: Check if mods folder exists and has files
-                        File modsDir = new File(destDir, "mods");
-                        boolean hasFabricMod = false;
-
-                        if (modsDir.exists() && modsDir.isDirectory() && modsDir.list().length > 0) {
-                            com.launcher.services.LogService.warn(
-                                    "Modloader not detected in manifest, but mods folder found. Checking for Fabric...");
-
-                            File[] modFiles = modsDir.listFiles();
-                            if (modFiles != null) {
-                                for (File mod : modFiles) {
-                                    if (mod.getName().endsWith(".jar")) {
-                                        try (java.util.zip.ZipFile zf = new java.util.zip.ZipFile(mod)) {
-                                            if (zf.getEntry("fabric.mod.json") != null) {
-                                                hasFabricMod = true;
-                                                break;
-                                            }
-                                        } catch (Exception ignored) {
-                                        }
-                                    }
-                                }
-                            }
-                        }
-
-                        if (hasFabricMod) {
-                            com.launcher.services.LogService
-                                    .info("Detected fabric.mod.json in mods. Forcing Fabric.");
-                            String loaderVer = "0.15.7"; // Hardcoded fallback
-                            String fabricUrl = "https://meta.fabricmc.net/v2/versions/loader/"
-                                    + info.minecraftVersion
-                                    + "/" + loaderVer + "/profile/json";
-                            downloadFile(fabricUrl, jsonFile);
-
-                            // Fix ID
-                            com.google.gson.JsonObject json;
-                            try (java.io.FileReader reader = new java.io.FileReader(jsonFile)) {
-                                json = new com.google.gson.Gson().fromJson(reader,
-                                        com.google.gson.JsonObject.class);
-                            }
-                            json.addProperty("id", folderName);
-                            json.addProperty("type", "modpack");
-                            if (!json.has("inheritsFrom")) {
-                                json.addProperty("inheritsFrom", info.minecraftVersion);
-                            }
-                            java.nio.file.Files.writeString(jsonFile.toPath(),
-                                    new com.google.gson.Gson().toJson(json));
-                            jsonContent = null;
-                        } else {
-                            com.launcher.services.LogService
-                                    .warn("Unknown modloader and no Fabric mod detected. Defaulting to Vanilla.");
-                            String version = info.minecraftVersion != null ? info.minecraftVersion
-                                    : "latest-release";
-                            jsonContent = "{\"id\":\"" + folderName + "\", \"inheritsFrom\":\"" + version
-                                    + "\", \"type\":\"modpack\"}";
-                        }
+                        com.launcher.services.LogService
+                                .warn("Unknown modloader and no Fabric mod detected. Defaulting to Vanilla.");
+                        String version = info.minecraftVersion != null ? info.minecraftVersion
+                                : "latest-release";
+                        jsonContent = "{\"id\":\"" + folderName + "\", \"inheritsFrom\":\"" + version
+                                + "\", \"type\":\"modpack\"}";
                     }
+                }
 
-                    if (jsonContent != null) {
-                        java.nio.file.Files.writeString(jsonFile.toPath(), jsonContent);
-                    }
+                if (jsonContent != null) {
+                    java.nio.file.Files.writeString(jsonFile.toPath(), jsonContent);
                 }
+            }
 
-                javafx.application.Platform.runLater(() -> {
-                    statusLabel.setText("INSTALLED: " + folderName.toUpperCase());
-                    statusLabel.setStyle("-fx-text-fill: #10b981;");
-                    progressBar.setVisible(false);
-                    progressBar.setManaged(false);
-                });
+            javafx.application.Platform.runLater(() -> {
+                statusLabel.setText("INSTALLED: " + folderName.toUpperCase());
+                statusLabel.setStyle("-fx-text-fill: #10b981;");
+                progressBar.setVisible(false);
+                progressBar.setManaged(false);
+            });
+
+        } catch (CancellationException e) {
+            com.launcher.services.LogService.info("Import cancelled: " + file.getName());
+            // Only remove what this import created; re-imports over an existing folder keep it
+            if (!existedBefore) {
+                deleteDirectory(destDir);
+            }
+            javafx.application.Platform.runLater(() -> {
+                statusLabel.setText("IMPORT CANCELLED");
+                statusLabel.setStyle("-fx-text-fill: #8e8e93;");
+                progressBar.setVisible(false);
+                progressBar.setManaged(false);
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+            com.launcher.services.LogService.error("Import failed", e);
+            javafx.application.Platform.runLater(() -> {
+                statusLabel.setText("INSTALLATION FAILED: " + e.getMessage().toUpperCase());
+                statusLabel.setStyle("-fx-text-fill: #ef4444;");
+                progressBar.setVisible(false);
+                progressBar.setManaged(false);
+            });
+        }
+    }
 
-            } catch (Exception e) {
-                e.printStackTrace();
-                com.launcher.services.LogService.error("Import failed", e);
-                javafx.application.Platform.runLater(() -> {
-                    statusLabel.setText("INSTALLATION FAILED: " + e.getMessage().toUpperCase());
-                    statusLabel.setStyle("-fx-text-fill: #ef4444;");
-                    progressBar.setVisible(false);
-                    progressBar.setManaged(false);
-                });
+    private void deleteDirectory(File directory) {
+        File[] allContents = directory.listFiles();
+        if (allContents != null) {
+            for (File file : allContents) {
+                deleteDirectory(file);
             }
-        }).start();
+        }
+        directory.delete();
     }
 
-    private void extractModpack(File zipFile, File destDir, ModpackService.ModpackType type) throws Exception {
+    private void extractModpack(File zipFile, File destDir, ModpackService.ModpackType type,
+            CancellationToken token) throws Exception {
         // 1. Analyze Zip Structure to find Root Prefix
         String rootPrefix = null;
         try (java.util.zip.ZipFile zf = new java.util.zip.ZipFile(zipFile)) {
@@ -311,6 +375,7 @@ public class ImportView extends VBox {
             java.util.zip.ZipEntry entry;
 
             while ((entry = zis.getNextEntry()) != null) {
+                token.throwIfCancelled();
                 String entryName = entry.getName().replace("\\", "/"); // Normalize slashes
 
                 if (entryName.startsWith("__MACOSX") || entryName.endsWith(".DS_Store")) {
@@ -378,6 +443,7 @@ public class ImportView extends VBox {
             int current = 0;
 
             for (ModpackService.ModpackFile mpFile : files) {
+                token.throwIfCancelled();
                 current++;
                 final int progress = current;
                 javafx.application.Platform.runLater(() -> {
@@ -388,7 +454,9 @@ public class ImportView extends VBox {
                     File target = new File(destDir, mpFile.path);
                     if (!target.exists()) {
                         try {
-                            downloadFile(mpFile.downloads.get(0), target);
+                            downloadFile(mpFile.downloads.get(0), target, token);
+                        } catch (CancellationException e) {
+                            throw e;
                         } catch (Exception e) {
                             com.launcher.services.LogService.error("Failed to download mod: " + mpFile.path);
                         }
@@ -398,15 +466,32 @@ public class ImportView extends VBox {
         }
     }
 
-    private void downloadFile(String urlStr, File target) throws Exception {
+    private void downloadFile(String urlStr, File target, CancellationToken token) throws Exception {
+        token.throwIfCancelled();
         java.net.URL url = new java.net.URL(urlStr);
-        try (java.io.InputStream in = url.openStream();
+        java.net.URLConnection conn = url.openConnection();
+        Runnable abort = () -> {
+            if (conn instanceof java.net.HttpURLConnection) {
+                ((java.net.HttpURLConnection) conn).disconnect();
+            }
+        };
+        CancellationToken.Registration reg = token.onCancel(abort);
+        try (java.io.InputStream in = conn.getInputStream();
                 java.io.FileOutputStream fos = new java.io.FileOutputStream(target)) {
-            byte[] buffer = new byte[4096];
+            byte[] buffer = new byte[8192];
             int len;
             while ((len = in.read(buffer)) > 0) {
+                token.throwIfCancelled();
                 fos.write(buffer, 0, len);
             }
+        } catch (Exception e) {
+            if (token.isCancelled()) {
+                target.delete();
+                throw new CancellationException("Download cancelled: " + urlStr);
+            }
+            throw e;
+        } finally {
+            reg.close();
         }
     }
 }
@@ -107,7 +107,7 @@ public class LoginView extends VBox {
         statusLabel.setText("Connecting to Microsoft...");
         loginContainer.setDisable(true);
 
-        MicrosoftAuthService authService = new MicrosoftAuthService();
+        MicrosoftAuthService authService = MicrosoftAuthService.getInstance();
         authService.requestDeviceCode().thenAccept(response -> {
             javafx.application.Platform.runLater(() -> {
                 if (response == null) {
@@ -150,6 +150,7 @@ public class LoginView extends VBox {
                             updateUI();
                         } else {
                             session.loginMicrosoft(authResult.username, authResult.uuid, authResult.accessToken);
+                            authService.startBackgroundRefresh();
                             updateUI();
                             statusLabel.setText("Logged in as " + authResult.username);
                         }
@@ -172,6 +173,7 @@ public class LoginView extends VBox {
 
     private void handleLogout() {
         session.logout();
+        MicrosoftAuthService.getInstance().signOut();
         updateUI();
         statusLabel.setText("Logged out.");
     }
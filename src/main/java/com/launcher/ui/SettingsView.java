@@ -1,6 +1,11 @@
 package com.launcher.ui;
 
+import com.launcher.services.CacheGcService;
+import com.launcher.services.HeapAdvisorService;
+import com.launcher.services.JarOptimizerService;
+import com.launcher.services.JvmProfileService;
 import com.launcher.services.SettingsService;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -45,7 +50,33 @@ public class SettingsView extends VBox {
                 createRamButton("16GB", 16384, ramSlider),
                 createRamButton("32GB", 32768, ramSlider));
 
-        ramSection.getChildren().addAll(ramValue, ramSlider, ramButtons);
+        // Adaptive heap: size each instance from its own GC logs instead of the slider
+        HBox heapRow = new HBox(10);
+        heapRow.setAlignment(Pos.CENTER_LEFT);
+        Label heapLabel = new Label("ADAPTIVE HEAP");
+        heapLabel.setStyle("-fx-text-fill: white; -fx-font-size: 12px; -fx-font-weight: bold;");
+        ComboBox<String> heapMode = new ComboBox<>();
+        heapMode.getItems().addAll("OFF", "RECOMMEND", "APPLY");
+        heapMode.setValue(settings.getHeapMode());
+        heapMode.getStyleClass().add("combo-box");
+        heapMode.setOnAction(e -> HeapAdvisorService.getInstance()
+                .setMode(HeapAdvisorService.Mode.valueOf(heapMode.getValue())));
+        heapRow.getChildren().addAll(heapLabel, heapMode);
+
+        // GC preset for every instance without its own override
+        HBox profileRow = new HBox(10);
+        profileRow.setAlignment(Pos.CENTER_LEFT);
+        Label profileLabel = new Label("JVM PROFILE");
+        profileLabel.setStyle("-fx-text-fill: white; -fx-font-size: 12px; -fx-font-weight: bold;");
+        ComboBox<JvmProfileService.Preset> profile = new ComboBox<>();
+        profile.getItems().addAll(JvmProfileService.Preset.values());
+        JvmProfileService.Preset current = JvmProfileService.parse(settings.getJvmProfile());
+        profile.setValue(current != null ? current : JvmProfileService.Preset.DEFAULT);
+        profile.getStyleClass().add("combo-box");
+        profile.setOnAction(e -> settings.setJvmProfile(profile.getValue().name()));
+        profileRow.getChildren().addAll(profileLabel, profile);
+
+        ramSection.getChildren().addAll(ramValue, ramSlider, ramButtons, heapRow, profileRow);
 
         // --- GAME RESOLUTION ---
         VBox resSection = createSection("GAME RESOLUTION", "Set the default window size and display mode.");
@@ -85,7 +116,34 @@ public class SettingsView extends VBox {
         autoCloseCb.setStyle("-fx-text-fill: white; -fx-font-size: 12px; -fx-font-weight: bold;");
         autoCloseCb.setOnAction(e -> settings.setAutoClose(autoCloseCb.isSelected()));
 
-        behaviorSection.getChildren().add(autoCloseCb);
+        // Dynamic class-data archive per classpath (Java 13+); the first launch records it
+        CheckBox cdsCb = new CheckBox("CACHE LOADED CLASSES FOR FASTER STARTUP");
+        cdsCb.setSelected(settings.isClassDataSharing());
+        cdsCb.setStyle("-fx-text-fill: white; -fx-font-size: 12px; -fx-font-weight: bold;");
+        cdsCb.setOnAction(e -> settings.setClassDataSharing(cdsCb.isSelected()));
+
+        // Read instance jars ahead of launch so a cold disk doesn't stall class loading
+        CheckBox prewarmCb = new CheckBox("PREWARM GAME FILES BEFORE LAUNCH");
+        prewarmCb.setSelected(settings.isPrewarm());
+        prewarmCb.setStyle("-fx-text-fill: white; -fx-font-size: 12px; -fx-font-weight: bold;");
+        prewarmCb.setOnAction(e -> settings.setPrewarm(prewarmCb.isSelected()));
+
+        // Uncompressed copies of classpath jars; BENCHMARK alternates with the originals and logs both
+        HBox storedRow = new HBox(10);
+        storedRow.setAlignment(Pos.CENTER_LEFT);
+        Label storedLabel = new Label("UNCOMPRESSED JARS");
+        storedLabel.setStyle("-fx-text-fill: white; -fx-font-size: 12px; -fx-font-weight: bold;");
+        ComboBox<String> storedMode = new ComboBox<>();
+        storedMode.getItems().addAll("OFF", "ON", "BENCHMARK");
+        storedMode.setValue(settings.getStoredJarsMode());
+        storedMode.getStyleClass().add("combo-box");
+        storedMode.setOnAction(e -> {
+            settings.setStoredJarsMode(storedMode.getValue());
+            JarOptimizerService.getInstance().resetFallbacks();
+        });
+        storedRow.getChildren().addAll(storedLabel, storedMode);
+
+        behaviorSection.getChildren().addAll(autoCloseCb, cdsCb, prewarmCb, storedRow);
 
         // --- ADVANCED ---
         VBox advancedSection = createSection("ADVANCED", "Java runtime and repository configuration.");
@@ -101,8 +159,33 @@ public class SettingsView extends VBox {
         repoUrlField.setStyle("-fx-background-color: rgba(255,255,255,0.03); -fx-text-fill: white; -fx-padding: 10;");
         repoUrlField.textProperty().addListener((obs, oldVal, newVal) -> settings.setRepoUrl(newVal));
 
+        // Which version wins when a loader profile and its parent declare the same library
+        ComboBox<String> libraryRule = new ComboBox<>();
+        libraryRule.getItems().addAll("HIGHEST", "NEAREST");
+        libraryRule.setValue(settings.getLibraryRule());
+        libraryRule.getStyleClass().add("combo-box");
+        libraryRule.setOnAction(e -> settings.setLibraryRule(libraryRule.getValue()));
+
+        // Unreachable libraries, assets and runtimes are collected at startup once the caches pass this size
+        HBox cacheRow = new HBox(10);
+        cacheRow.setAlignment(Pos.CENTER_LEFT);
+        TextField cacheBudgetField = createNumberField(String.valueOf(settings.getCacheBudgetGb()), "GB");
+        cacheBudgetField.textProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal.matches("\\d+")) {
+                settings.setCacheBudgetGb(Integer.parseInt(newVal));
+            }
+        });
+        Label cacheHint = new Label("GB (0 = only when analyzed)");
+        cacheHint.setStyle("-fx-text-fill: #888; -fx-font-size: 11px;");
+        Button analyzeCacheBtn = new Button("ANALYZE CACHE");
+        analyzeCacheBtn.getStyleClass().add("nav-button");
+        analyzeCacheBtn.setStyle(
+                "-fx-background-color: rgba(255,255,255,0.05); -fx-text-fill: white; -fx-font-size: 11px; -fx-padding: 8 15;");
+        analyzeCacheBtn.setOnAction(e -> analyzeCache(analyzeCacheBtn));
+        cacheRow.getChildren().addAll(cacheBudgetField, cacheHint, analyzeCacheBtn);
+
         advancedSection.getChildren().addAll(new Label("JAVA PATH"), javaPathField, new Label("REPO URL"),
-                repoUrlField);
+                repoUrlField, new Label("LIBRARY CONFLICTS"), libraryRule, new Label("CACHE BUDGET"), cacheRow);
 
         content.getChildren().addAll(ramSection, resSection, behaviorSection, advancedSection);
 
@@ -115,6 +198,46 @@ public class SettingsView extends VBox {
         this.getChildren().addAll(title, scrollPane);
     }
 
+    // Dry run first: the report is shown and nothing is deleted unless confirmed
+    private void analyzeCache(Button button) {
+        button.setDisable(true);
+        button.setText("ANALYZING...");
+        CacheGcService.getInstance().scanAsync().whenComplete((report, error) -> Platform.runLater(() -> {
+            button.setDisable(false);
+            button.setText("ANALYZE CACHE");
+            if (error != null) {
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.setTitle("Cache");
+                alert.setHeaderText("Cache analysis failed");
+                alert.setContentText(error.getCause() != null ? error.getCause().getMessage() : error.getMessage());
+                alert.showAndWait();
+                return;
+            }
+            if (report.unreachable.isEmpty()) {
+                Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                alert.setTitle("Cache");
+                alert.setHeaderText("Nothing to clean up");
+                alert.setContentText(CacheGcService.formatSize(report.totalBytes) + " in use, all of it reachable.");
+                alert.showAndWait();
+                return;
+            }
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+            confirm.setTitle("Cache");
+            confirm.setHeaderText("Delete unreachable files?");
+            confirm.setContentText(report.summary());
+            confirm.showAndWait().ifPresent(response -> {
+                if (response == ButtonType.OK) {
+                    button.setDisable(true);
+                    button.setText("CLEANING...");
+                    CacheGcService.getInstance().sweepAsync(report).whenComplete((freed, e) -> Platform.runLater(() -> {
+                        button.setDisable(false);
+                        button.setText(e == null ? "FREED " + CacheGcService.formatSize(freed) : "ANALYZE CACHE");
+                    }));
+                }
+            });
+        }));
+    }
+
     private Button createRamButton(String label, int value, Slider slider) {
         Button btn = new Button(label);
         btn.getStyleClass().add("nav-button");
@@ -0,0 +1,133 @@
+package com.launcher.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Writer for the java launcher's @argfile format (JDK 9+): one argument per line, quoted when it
+// holds whitespace, quotes, '#' or backslashes; inside quotes backslash is the escape character.
+// The launcher reads the file in the platform's native encoding (the ANSI code page on Windows),
+// not UTF-8.
+public final class ArgFile {
+
+    public static final Charset CHARSET = nativeCharset();
+
+    private ArgFile() {
+    }
+
+    // False if some argument (e.g. a path under a non-ASCII user name) has no representation in
+    // the native encoding; such arguments must go on the command line instead
+    public static boolean canEncode(List<String> args) {
+        CharsetEncoder encoder = CHARSET.newEncoder();
+        for (String arg : args) {
+            if (!encoder.canEncode(arg))
+                return false;
+        }
+        return true;
+    }
+
+    // Writes args to file unless it already holds exactly that content. Returns true if rewritten.
+    public static boolean write(File file, List<String> args) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String arg : args) {
+            sb.append(quote(arg)).append('\n');
+        }
+        byte[] content = sb.toString().getBytes(CHARSET);
+        if (file.isFile() && file.length() == content.length
+                && Arrays.equals(Files.readAllBytes(file.toPath()), content))
+            return false;
+
+        file.getParentFile().mkdirs();
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), content);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    // Splits a user-typed argument string on whitespace, keeping "double" or 'single' quoted runs
+    // together (-Dname="a b"). Backslashes are literal, so Windows paths need no escaping, except
+    // that \" and \\ inside double quotes stand for a quote and a backslash.
+    public static List<String> split(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else if (quote == '"' && c == '\\' && i + 1 < line.length()
+                        && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\')) {
+                    current.append(line.charAt(++i));
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                current.append(c);
+                inArg = true;
+            }
+        }
+        if (inArg) {
+            args.add(current.toString());
+        }
+        return args;
+    }
+
+    private static Charset nativeCharset() {
+        try {
+            String name = System.getProperty("sun.jnu.encoding");
+            return name != null ? Charset.forName(name) : Charset.defaultCharset();
+        } catch (IllegalArgumentException e) {
+            return Charset.defaultCharset();
+        }
+    }
+
+    static String quote(String arg) {
+        boolean plain = !arg.isEmpty();
+        for (int i = 0; i < arg.length() && plain; i++) {
+            char c = arg.charAt(i);
+            plain = !Character.isWhitespace(c) && c != '"' && c != '\'' && c != '#' && c != '\\';
+        }
+        if (plain)
+            return arg;
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < arg.length(); i++) {
+            char c = arg.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    sb.append('\\').append(c);
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
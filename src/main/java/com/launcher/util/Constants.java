@@ -4,4 +4,7 @@ import java.io.File;
 
 public class Constants {
     public static final String GAME_DIR = System.getenv("APPDATA") + File.separator + "AntigravityLauncher";
+    // Java runtimes installed by the launcher (shared with the official launcher's layout)
+    public static final String RUNTIMES_DIR = System.getenv("APPDATA") + File.separator + ".minecraft"
+            + File.separator + "runtimes";
 }
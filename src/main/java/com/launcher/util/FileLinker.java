@@ -0,0 +1,76 @@
+package com.launcher.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Places a file at a second path without duplicating its bytes where the filesystem allows it:
+// a hard link first, then a copy-on-write clone (cp --reflink / cp -c), then a plain copy.
+// Only for content that is never modified in place, since hard links share every write.
+public final class FileLinker {
+
+    public enum Method {
+        HARD_LINK, REFLINK, COPY
+    }
+
+    private static final String OS = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+    private static final boolean WINDOWS = OS.contains("win");
+    private static final boolean MAC = OS.contains("mac");
+
+    // Remembered per linker so a filesystem without hard links is not retried for every file
+    private boolean hardLinks = true;
+    private boolean reflinks = !WINDOWS;
+
+    // Replaces target (if present) with source's content; the target's directory is created
+    public Method link(File source, File target) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Path to = target.toPath();
+        Files.deleteIfExists(to);
+        if (hardLinks) {
+            try {
+                Files.createLink(to, source.toPath());
+                return Method.HARD_LINK;
+            } catch (UnsupportedOperationException | IOException e) {
+                // Cross-device or FAT/exFAT: stop trying for this run
+                hardLinks = false;
+            }
+        }
+        if (reflinks) {
+            if (reflink(source, target))
+                return Method.REFLINK;
+            reflinks = false;
+        }
+        Files.copy(source.toPath(), to, StandardCopyOption.REPLACE_EXISTING);
+        return Method.COPY;
+    }
+
+    private static boolean reflink(File source, File target) {
+        ProcessBuilder pb = MAC
+                ? new ProcessBuilder("cp", "-c", source.getAbsolutePath(), target.getAbsolutePath())
+                : new ProcessBuilder("cp", "--reflink=always", source.getAbsolutePath(), target.getAbsolutePath());
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        try {
+            Process p = pb.start();
+            if (!p.waitFor(30, TimeUnit.SECONDS)) {
+                p.destroyForcibly();
+                return false;
+            }
+            if (p.exitValue() == 0)
+                return true;
+        } catch (IOException e) {
+            // No cp on this system
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        target.delete();
+        return false;
+    }
+}
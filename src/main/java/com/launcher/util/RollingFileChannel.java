@@ -0,0 +1,201 @@
+package com.launcher.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+// Append-only file that rolls over by size and by calendar day. Rolled files are renamed to
+// <base>-<date>-<n><ext>, gzip-compressed on a background thread and pruned to a retention cap,
+// so the thread that writes never waits on compression.
+public class RollingFileChannel implements Closeable {
+
+    private static final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "log-compressor");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private final Path file;
+    private final String baseName;
+    private final String extension;
+    private final long maxBytes;
+    private final int maxArchives;
+
+    private FileChannel channel;
+    private LocalDate openedOn;
+    private long size;
+
+    public RollingFileChannel(Path file, long maxBytes, int maxArchives) throws IOException {
+        this.file = file;
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.baseName = dot > 0 ? name.substring(0, dot) : name;
+        this.extension = dot > 0 ? name.substring(dot) : "";
+        this.maxBytes = maxBytes;
+        this.maxArchives = maxArchives;
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        // A file left over from an earlier day belongs in its own archive
+        if (Files.exists(file) && Files.size(file) > 0 && !dayOf(file).equals(LocalDate.now())) {
+            archive(dayOf(file));
+        }
+        open();
+        compressLeftovers();
+    }
+
+    public Path getPath() {
+        return file;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void write(ByteBuffer buffer) throws IOException {
+        if (size >= maxBytes || !LocalDate.now().equals(openedOn)) {
+            roll();
+        }
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+        }
+    }
+
+    public void roll() throws IOException {
+        LocalDate day = openedOn;
+        channel.close();
+        if (size > 0) {
+            archive(day);
+        }
+        open();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        size = channel.size();
+        openedOn = LocalDate.now();
+    }
+
+    private void archive(LocalDate day) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Path target;
+        int n = 1;
+        do {
+            target = dir.resolve(baseName + "-" + day + "-" + n + extension);
+            n++;
+        } while (Files.exists(target) || Files.exists(Path.of(target + ".gz")));
+
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        Path rolled = target;
+        compressor.submit(() -> compress(rolled));
+    }
+
+    private void compressLeftovers() {
+        // Rolled files whose compression was interrupted by a shutdown
+        Path dir = file.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, baseName + "-*.gz.tmp")) {
+            for (Path p : stream) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to clean partial archives in " + dir + ": " + e.getMessage());
+        }
+        for (Path p : listArchives()) {
+            if (!p.getFileName().toString().endsWith(".gz")) {
+                compressor.submit(() -> compress(p));
+            }
+        }
+        compressor.submit(this::prune);
+    }
+
+    private void compress(Path source) {
+        Path gz = Path.of(source + ".gz");
+        Path tmp = Path.of(source + ".gz.tmp");
+        try (InputStream in = Files.newInputStream(source);
+                OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            System.err.println("Failed to compress " + source + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+        try {
+            Files.move(tmp, gz, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(source);
+        } catch (IOException e) {
+            System.err.println("Failed to finish archive " + gz + ": " + e.getMessage());
+        }
+        prune();
+    }
+
+    private void prune() {
+        // Only finished archives count; files still waiting for compression are left alone
+        List<Path> archives = listArchives();
+        archives.removeIf(p -> !p.getFileName().toString().endsWith(".gz"));
+        if (archives.size() <= maxArchives)
+            return;
+        archives.sort(Comparator.comparingLong(RollingFileChannel::lastModified).reversed());
+        for (Path old : archives.subList(maxArchives, archives.size())) {
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                System.err.println("Failed to delete old log " + old + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private List<Path> listArchives() {
+        List<Path> result = new ArrayList<>();
+        Path dir = file.toAbsolutePath().getParent();
+        String prefix = baseName + "-";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, prefix + "*")) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(extension) || name.endsWith(extension + ".gz")) {
+                    result.add(p);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to list logs in " + dir + ": " + e.getMessage());
+        }
+        return result;
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static LocalDate dayOf(Path p) {
+        return Instant.ofEpochMilli(lastModified(p)).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
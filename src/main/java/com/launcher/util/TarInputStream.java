@@ -0,0 +1,251 @@
+package com.launcher.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// Minimal streaming tar reader in the shape of ZipInputStream: getNextEntry() positions the stream
+// at an entry's data and read() stops at its end. Handles ustar, GNU long names and pax path/size
+// records, which covers the JDK tarballs Adoptium publishes.
+public class TarInputStream extends FilterInputStream {
+
+    private static final int BLOCK = 512;
+
+    public static class TarEntry {
+        public static final char FILE = '0';
+        public static final char HARD_LINK = '1';
+        public static final char SYMLINK = '2';
+        public static final char DIRECTORY = '5';
+
+        private final String name;
+        private final long size;
+        private final int mode;
+        private final char type;
+        private final String linkName;
+
+        TarEntry(String name, long size, int mode, char type, String linkName) {
+            this.name = name;
+            this.size = size;
+            this.mode = mode;
+            this.type = type;
+            this.linkName = linkName;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public int getMode() {
+            return mode;
+        }
+
+        public char getType() {
+            return type;
+        }
+
+        public String getLinkName() {
+            return linkName;
+        }
+
+        public boolean isDirectory() {
+            return type == DIRECTORY;
+        }
+
+        public boolean isFile() {
+            return type == FILE;
+        }
+    }
+
+    private final byte[] header = new byte[BLOCK];
+    private long remaining;
+    private long padding;
+
+    public TarInputStream(InputStream in) {
+        super(in);
+    }
+
+    public TarEntry getNextEntry() throws IOException {
+        skipRest();
+        String longName = null;
+        String longLink = null;
+        Long paxSize = null;
+        while (true) {
+            if (!readBlock(header))
+                return null;
+            if (isZeroBlock(header))
+                return null;
+
+            String name = string(header, 0, 100);
+            int mode = (int) octal(header, 100, 8);
+            long size = octal(header, 124, 12);
+            char type = header[156] == 0 ? TarEntry.FILE : (char) header[156];
+            String linkName = string(header, 157, 100);
+            if ("ustar".equals(string(header, 257, 5))) {
+                String prefix = string(header, 345, 155);
+                if (!prefix.isEmpty()) {
+                    name = prefix + "/" + name;
+                }
+            }
+
+            switch (type) {
+                case 'L':
+                    longName = readString(size);
+                    continue;
+                case 'K':
+                    longLink = readString(size);
+                    continue;
+                case 'x': {
+                    // pax extended header: "<len> key=value\n" records for the next entry
+                    for (String record : readString(size).split("\n")) {
+                        int space = record.indexOf(' ');
+                        int eq = record.indexOf('=');
+                        if (space < 0 || eq < space)
+                            continue;
+                        String key = record.substring(space + 1, eq);
+                        String value = record.substring(eq + 1);
+                        if (key.equals("path")) {
+                            longName = value;
+                        } else if (key.equals("linkpath")) {
+                            longLink = value;
+                        } else if (key.equals("size")) {
+                            paxSize = Long.parseLong(value);
+                        }
+                    }
+                    continue;
+                }
+                case 'g':
+                    readString(size);
+                    continue;
+                default:
+                    break;
+            }
+
+            if (longName != null)
+                name = longName;
+            if (longLink != null)
+                linkName = longLink;
+            if (paxSize != null)
+                size = paxSize;
+            if (type == TarEntry.DIRECTORY || type == TarEntry.SYMLINK || type == TarEntry.HARD_LINK) {
+                // Links and directories carry no data even if a size is recorded
+                size = 0;
+            }
+            remaining = size;
+            padding = (BLOCK - size % BLOCK) % BLOCK;
+            return new TarEntry(name, size, mode, type == '7' ? TarEntry.FILE : type, linkName);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0)
+            return -1;
+        int b = in.read();
+        if (b >= 0)
+            remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (remaining <= 0)
+            return -1;
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n < 0)
+            throw new IOException("Unexpected end of tar stream");
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(Math.min(n, remaining));
+        remaining -= skipped;
+        return skipped;
+    }
+
+    private void skipRest() throws IOException {
+        skipFully(remaining + padding);
+        remaining = 0;
+        padding = 0;
+    }
+
+    private void skipFully(long n) throws IOException {
+        byte[] scratch = null;
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (scratch == null)
+                    scratch = new byte[BLOCK];
+                int r = in.read(scratch, 0, (int) Math.min(scratch.length, n));
+                if (r < 0)
+                    throw new IOException("Unexpected end of tar stream");
+                skipped = r;
+            }
+            n -= skipped;
+        }
+    }
+
+    private String readString(long size) throws IOException {
+        byte[] data = new byte[(int) size];
+        int off = 0;
+        while (off < data.length) {
+            int n = in.read(data, off, data.length - off);
+            if (n < 0)
+                throw new IOException("Unexpected end of tar stream");
+            off += n;
+        }
+        skipFully((BLOCK - size % BLOCK) % BLOCK);
+        int end = data.length;
+        while (end > 0 && data[end - 1] == 0)
+            end--;
+        return new String(data, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private boolean readBlock(byte[] block) throws IOException {
+        int off = 0;
+        while (off < BLOCK) {
+            int n = in.read(block, off, BLOCK - off);
+            if (n < 0) {
+                if (off == 0)
+                    return false;
+                throw new IOException("Truncated tar header");
+            }
+            off += n;
+        }
+        return true;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static String string(byte[] buf, int off, int len) {
+        int end = off;
+        while (end < off + len && buf[end] != 0)
+            end++;
+        return new String(buf, off, end - off, StandardCharsets.UTF_8);
+    }
+
+    private static long octal(byte[] buf, int off, int len) {
+        long value = 0;
+        for (int i = off; i < off + len; i++) {
+            byte b = buf[i];
+            if (b == 0 || b == ' ')
+                continue;
+            if (b < '0' || b > '7')
+                break;
+            value = value * 8 + (b - '0');
+        }
+        return value;
+    }
+}